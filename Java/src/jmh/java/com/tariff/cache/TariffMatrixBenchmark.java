@@ -0,0 +1,145 @@
+package com.tariff.cache;
+
+import com.tariff.config.DatabaseConfig;
+import com.tariff.connection.ConnectionPool;
+import com.tariff.enums.CacheNamespace;
+import com.tariff.enums.TariffCombinationPolicy;
+import com.tariff.loadtest.SyntheticDataGenerator;
+import com.tariff.model.CombinedTariff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Calculated-tariff lookups from the off-heap matrix vs the Redis path (key build, GET/MGET, JSON).
+// The redis backend needs the same Postgres and Redis as LoadTestDriver, configured the same way.
+//   mvn -Pbenchmark compile exec:exec -Djmh.args="TariffMatrixBenchmark -p backend=offheap"
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-XX:MaxDirectMemorySize=4g"})
+public class TariffMatrixBenchmark {
+    private static final long GENERATION = 0;
+
+    @Param({"offheap", "redis"})
+    public String backend;
+
+    @Param({"50000"})
+    public int items;
+
+    @Param({"20"})
+    public int countries;
+
+    private String[] itemIds;
+    private List<String> countryCodes;
+    private OffHeapTariffStore store;
+    private ConnectionPool connectionPool;
+    private CacheManager cacheManager;
+
+    @Setup
+    public void setUp() throws Exception {
+        itemIds = new String[items];
+        for (int i = 0; i < items; i++) {
+            itemIds[i] = SyntheticDataGenerator.itemId(i);
+        }
+        countryCodes = SyntheticDataGenerator.countryCodes(countries);
+
+        if (backend.equals("offheap")) {
+            store = new OffHeapTariffStore((long) items * countries, 64, 256, null);
+            long expiresAt = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+            for (String itemId : itemIds) {
+                for (String country : countryCodes) {
+                    store.put(tariff(itemId, country), GENERATION, expiresAt);
+                }
+            }
+        } else {
+            DatabaseConfig config = new DatabaseConfig();
+            connectionPool = new ConnectionPool(config);
+            connectionPool.initialize();
+            cacheManager = new CacheManager(connectionPool, config);
+            Map<String, Object> batch = new HashMap<>();
+            for (String itemId : itemIds) {
+                for (String country : countryCodes) {
+                    batch.put(cacheManager.generateCacheKey(CacheNamespace.CALCULATED_TARIFF, itemId, country),
+                            tariff(itemId, country));
+                }
+                if (batch.size() >= 10_000) {
+                    cacheManager.setAll(batch, 3600);
+                    batch.clear();
+                }
+            }
+            cacheManager.setAll(batch, 3600);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (cacheManager != null) {
+            cacheManager.close();
+            connectionPool.close();
+        }
+    }
+
+    @Benchmark
+    public CombinedTariff singleCountry() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String itemId = itemIds[random.nextInt(itemIds.length)];
+        String country = countryCodes.get(random.nextInt(countryCodes.size()));
+        if (store != null) {
+            return store.get(itemId, country, GENERATION);
+        }
+        return cacheManager.get(cacheManager.generateCacheKey(CacheNamespace.CALCULATED_TARIFF, itemId, country),
+                CombinedTariff.class);
+    }
+
+    @Benchmark
+    public Map<String, CombinedTariff> allCountries() {
+        String itemId = itemIds[ThreadLocalRandom.current().nextInt(itemIds.length)];
+        if (store != null) {
+            Map<String, CombinedTariff> results = new HashMap<>();
+            for (String country : countryCodes) {
+                results.put(country, store.get(itemId, country, GENERATION));
+            }
+            return results;
+        }
+        Map<String, String> keys = new LinkedHashMap<>();
+        for (String country : countryCodes) {
+            keys.put(country, cacheManager.generateCacheKey(CacheNamespace.CALCULATED_TARIFF, itemId, country));
+        }
+        return cacheManager.getAll(new ArrayList<>(keys.values()), CombinedTariff.class);
+    }
+
+    // Shaped like a real result: NUMERIC(7,4) rates and a handful of components
+    private static CombinedTariff tariff(String itemId, String country) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BigDecimal itemRate = BigDecimal.valueOf(random.nextInt(250_000), 4);
+        BigDecimal componentRate = BigDecimal.valueOf(random.nextInt(250_000), 4);
+        List<String> components = new ArrayList<>();
+        int count = 3 + random.nextInt(8);
+        for (int i = 0; i < count; i++) {
+            components.add(SyntheticDataGenerator.componentId(random.nextInt(20_000)));
+        }
+        return new CombinedTariff(itemId, country, itemRate, componentRate, itemRate.add(componentRate),
+                TariffCombinationPolicy.ADDITIVE, components, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,40 @@
+package com.tariff.cache;
+
+// Builds keys of the form namespace:v<version>:g<generation>:arg1:arg2 in a per-thread buffer;
+// ':' and '\' inside arguments are escaped so different argument lists never collide, and a null
+// argument becomes "\N", which no escaped string can produce
+public final class CacheKeyBuilder {
+    private static final String NULL_TOKEN = "\\N";
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(64));
+
+    private CacheKeyBuilder() {}
+
+    public static String build(String namespace, int version, long generation, Object... args) {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        sb.append(namespace).append(":v").append(version).append(":g").append(generation);
+        for (Object arg : args) {
+            sb.append(':');
+            if (arg == null) {
+                sb.append(NULL_TOKEN);
+            } else {
+                appendEscaped(sb, arg.toString());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendEscaped(StringBuilder sb, String value) {
+        if (value.indexOf(':') < 0 && value.indexOf('\\') < 0) {
+            sb.append(value);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ':' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+    }
+}
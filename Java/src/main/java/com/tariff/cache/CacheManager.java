@@ -3,62 +3,668 @@ package com.tariff.cache;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.tariff.config.DatabaseConfig;
 import com.tariff.connection.ConnectionPool;
+import com.tariff.enums.CacheNamespace;
+import com.tariff.model.CombinedTariff;
+import com.tariff.tracing.CacheProbeEvent;
+import com.tariff.tracing.CacheWriteEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public class CacheManager {
     private static final Logger logger = LoggerFactory.getLogger(CacheManager.class);
+    private static final String GENERATION_PREFIX = "generation:";
+    private static final String DATA_VERSION_KEY = "changefeed:position";
+
+    // Values are stored as "<version>:<json>" and a write only replaces a value whose version is not
+    // newer. Versions are compared as decimal strings, so they keep full precision in Lua.
+    private static final String VERSIONED_SET_SCRIPT = """
+        local current = redis.call('GET', KEYS[1])
+        if current then
+            local stored = string.match(current, '^(%d+):')
+            if stored and (#stored > #ARGV[1] or (#stored == #ARGV[1] and stored > ARGV[1])) then
+                return 0
+            end
+        end
+        redis.call('SET', KEYS[1], ARGV[1] .. ':' .. ARGV[2], 'EX', ARGV[3])
+        return 1
+    """;
+    private static final String VERSIONED_SET_SHA = sha1Hex(VERSIONED_SET_SCRIPT);
+
     private final ConnectionPool connectionPool;
     private final ObjectMapper objectMapper;
+    private final long generationRefreshNanos;
+    private final SharedCounter[] generations;
+    // Change-feed position (primary WAL offset) as last read from Redis, see readDataVersion
+    private final SharedCounter dataPosition;
+    private final int dataPositionTtl;
+    private final String[] unknownGenerationPrefixes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder[] namespaceHits;
+    private final LongAdder[] namespaceMisses;
+    private final ExecutorService shardExecutor;
+    // Node-local tier for calculated tariffs, null when disabled
+    private final OffHeapTariffStore tariffMatrix;
+    private final int tariffMatrixTtl;
 
-    public CacheManager(ConnectionPool connectionPool) {
+    public CacheManager(ConnectionPool connectionPool, DatabaseConfig config) {
         this.connectionPool = connectionPool;
+        this.generationRefreshNanos = config.getCacheGenerationRefreshMs() * 1_000_000L;
+        this.generations = new SharedCounter[CacheNamespace.values().length];
+        this.unknownGenerationPrefixes = new String[generations.length];
+        for (CacheNamespace namespace : CacheNamespace.values()) {
+            generations[namespace.ordinal()] = new SharedCounter();
+            unknownGenerationPrefixes[namespace.ordinal()] =
+                    CacheKeyBuilder.build(namespace.getValue(), namespace.getVersion(), -1);
+        }
+        this.namespaceHits = new LongAdder[generations.length];
+        this.namespaceMisses = new LongAdder[generations.length];
+        for (int i = 0; i < generations.length; i++) {
+            namespaceHits[i] = new LongAdder();
+            namespaceMisses[i] = new LongAdder();
+        }
+        this.dataPosition = new SharedCounter();
+        // Outlives every entry written at that position (see publishDataVersion)
+        this.dataPositionTtl = Math.max(config.getCacheTtl(), config.getBomCacheTtl());
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
+        // The calling thread handles one shard of every multi-key operation, the pool the rest. Sized
+        // for every scheduler worker fanning out at once; the hand-off queue holds nothing, so a shard
+        // call never waits behind other callers' calls: when no thread is free, or after close(), the
+        // caller runs it (CallerRunsPolicy would drop it after close and leave the join hanging).
+        int shardThreads = (config.getInteractiveThreads() + config.getBulkThreads())
+                * Math.max(1, config.getRedisNodes().size() - 1);
+        ThreadPoolExecutor shardPool = new ThreadPoolExecutor(shardThreads, shardThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "cache-shard");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (runnable, executor) -> runnable.run());
+        shardPool.allowCoreThreadTimeOut(true);
+        this.shardExecutor = shardPool;
+
+        // The change feed rewrites Redis but cannot reach other nodes' matrices, which keep serving the
+        // old result until it expires. Capped at the poll interval, that adds no more staleness than
+        // the feed itself already allows when it misses a notification.
+        int matrixTtl = config.getOffHeapCacheTtl();
+        if (config.isChangeFeedEnabled()) {
+            int pollSeconds = (int) Math.max(1, (config.getChangeFeedPollMs() + 999) / 1000);
+            if (pollSeconds < matrixTtl) {
+                logger.info("Off-heap matrix TTL lowered from {}s to the change-feed poll interval, {}s",
+                        matrixTtl, pollSeconds);
+                matrixTtl = pollSeconds;
+            }
+        }
+        this.tariffMatrixTtl = matrixTtl;
+        if (config.isOffHeapCacheEnabled()) {
+            try {
+                this.tariffMatrix = new OffHeapTariffStore(config.getOffHeapCacheEntries(),
+                        config.getOffHeapCacheSegments(), config.getOffHeapCacheRecordBytes(),
+                        config.getOffHeapCacheDir().isEmpty() ? null : Paths.get(config.getOffHeapCacheDir()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map off-heap cache segments", e);
+            }
+        } else {
+            this.tariffMatrix = null;
+        }
     }
 
-    public String generateCacheKey(String prefix, String functionName, Object... args) {
-        try {
-            String keyData = functionName + ":" + Arrays.toString(args);
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(keyData.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b));
+    public String generateCacheKey(CacheNamespace namespace, Object... args) {
+        return CacheKeyBuilder.build(namespace.getValue(), namespace.getVersion(), currentGeneration(namespace), args);
+    }
+
+    // Orphans every key in the namespace at once; old entries simply age out through their TTL
+    public long bumpGeneration(CacheNamespace namespace) {
+        String generationKey = GENERATION_PREFIX + namespace.getValue();
+        try (Jedis jedis = connectionPool.getJedisPool(generationKey).getResource()) {
+            long generation = jedis.incr(generationKey);
+            SharedCounter local = generations[namespace.ordinal()];
+            long seen = local.get();
+            if (generation <= seen) {
+                // The counter was lost (Redis flushed or failed over); move it past the generation in use
+                generation = jedis.incrBy(generationKey, seen + 1 - generation);
             }
-            return prefix + ":" + sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            logger.warn("MD5 not available, using simple key generation");
-            return prefix + ":" + functionName + ":" + Arrays.hashCode(args);
+            local.advance(generation);
+            local.refreshedAt.set(System.nanoTime());
+            logger.info("Cache namespace {} moved to generation {}", namespace.getValue(), generation);
+            return generation;
         }
     }
 
+    // Served from memory and re-read from Redis at most once per refresh interval, so a bump
+    // on another node is picked up within that interval. Until the first read succeeds the
+    // generation is unknown (-1): one caller per interval retries the read, and keys built in
+    // the meantime bypass the cache (see hasUnknownGeneration) rather than guess a generation.
+    // The generation only moves forward: a read that raced with a local bump must not undo it.
+    private long currentGeneration(CacheNamespace namespace) {
+        SharedCounter local = generations[namespace.ordinal()];
+        long now = System.nanoTime();
+        long refreshedAt = local.refreshedAt.get();
+        if (now - refreshedAt >= generationRefreshNanos && local.refreshedAt.compareAndSet(refreshedAt, now)) {
+            String generationKey = GENERATION_PREFIX + namespace.getValue();
+            try (Jedis jedis = connectionPool.getJedisPool(generationKey).getResource()) {
+                String stored = jedis.get(generationKey);
+                local.advance(stored != null ? Long.parseLong(stored) : 0L);
+                local.refreshedAt.set(now);
+            } catch (Exception e) {
+                logger.warn("Cache generation read error for {}: {}", namespace.getValue(), e.getMessage());
+            }
+        }
+        return local.get();
+    }
+
+    // Version for a write of data read after this call: twice the change-feed position, so that the
+    // feed's own writes at the same position (odd, see publishDataVersion) win. The replica floor is
+    // raised to that position first, so the data behind the write is at least that new. Re-read from
+    // Redis at most once per refresh interval; 0 while no position has been published, which only
+    // fills keys that hold no versioned entry.
+    public long readDataVersion() {
+        SharedCounter local = dataPosition;
+        long now = System.nanoTime();
+        long refreshedAt = local.refreshedAt.get();
+        if (now - refreshedAt >= generationRefreshNanos && local.refreshedAt.compareAndSet(refreshedAt, now)) {
+            try (Jedis jedis = connectionPool.getJedisPool(DATA_VERSION_KEY).getResource()) {
+                String stored = jedis.get(DATA_VERSION_KEY);
+                long lsn = stored != null ? Long.parseLong(payload(stored)) : 0L;
+                connectionPool.requireReplayLsn(lsn);
+                local.advance(lsn);
+                local.refreshedAt.set(now);
+            } catch (Exception e) {
+                logger.warn("Cache data version read error: {}", e.getMessage());
+            }
+        }
+        return Math.max(local.get(), 0L) * 2;
+    }
+
+    // Called by the change-feed consumer before it reads from the primary: publishes the primary WAL
+    // position it reads at and returns the version to write the results with. The version is odd, so
+    // those writes replace entries that readers wrote at the same position, possibly from a replica
+    // that had not replayed the change yet, and are never replaced by them. The position outlives the
+    // entries written at it, so when it expires nothing versioned against it is left.
+    public long publishDataVersion(long lsn) {
+        long version = lsn * 2 + 1;
+        try (Jedis jedis = connectionPool.getJedisPool(DATA_VERSION_KEY).getResource()) {
+            writeVersioned(jedis, Collections.singletonList(DATA_VERSION_KEY),
+                    Collections.singletonList(Long.toString(lsn)), dataPositionTtl, version);
+        } catch (Exception e) {
+            logger.warn("Cache data version write error: {}", e.getMessage());
+        }
+        connectionPool.requireReplayLsn(lsn);
+        dataPosition.advance(lsn);
+        return version;
+    }
+
+    // True for keys built while their namespace generation was unknown; those are never read or written
+    private boolean hasUnknownGeneration(String key) {
+        CacheNamespace namespace = CacheNamespace.fromValue(namespaceOf(key));
+        if (namespace == null) {
+            return false;
+        }
+        String prefix = unknownGenerationPrefixes[namespace.ordinal()];
+        return key.startsWith(prefix) && (key.length() == prefix.length() || key.charAt(prefix.length()) == ':');
+    }
+
+    private List<String> withKnownGeneration(List<String> keys) {
+        List<String> known = null;
+        for (int i = 0; i < keys.size(); i++) {
+            if (hasUnknownGeneration(keys.get(i))) {
+                if (known == null) {
+                    known = new ArrayList<>(keys.subList(0, i));
+                }
+            } else if (known != null) {
+                known.add(keys.get(i));
+            }
+        }
+        return known != null ? known : keys;
+    }
+
     public <T> T get(String key, Class<T> clazz) {
-        try (Jedis jedis = connectionPool.getJedisPool().getResource()) {
-            String cached = jedis.get(key);
+        Optional<T> cached = getOptional(key, clazz);
+        return cached != null ? cached.orElse(null) : null;
+    }
+
+    // Tells a cached absence (a null value, e.g. an entity with no active rule) apart from a miss:
+    // null on a miss, Optional.empty() when the absence itself is cached
+    public <T> Optional<T> getOptional(String key, Class<T> clazz) {
+        return read(key, json -> objectMapper.readValue(json, clazz));
+    }
+
+    public <T> List<T> getList(String key, Class<T> elementClass) {
+        Optional<List<T>> cached = read(key, json -> objectMapper.readValue(json,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, elementClass)));
+        return cached != null ? cached.orElse(null) : null;
+    }
+
+    private <T> Optional<T> read(String key, JsonReader<T> reader) {
+        if (hasUnknownGeneration(key)) {
+            recordProbe(key, 1, 0);
+            return null;
+        }
+        CacheProbeEvent event = new CacheProbeEvent();
+        event.begin();
+        String cached = null;
+        try (Jedis jedis = connectionPool.getJedisPool(key).getResource()) {
+            cached = jedis.get(key);
             if (cached != null) {
                 logger.debug("Cache hit for key: {}", key);
-                return objectMapper.readValue(cached, clazz);
+                return Optional.ofNullable(reader.read(payload(cached)));
             }
         } catch (Exception e) {
             logger.warn("Cache read error for key {}: {}", key, e.getMessage());
+        } finally {
+            recordProbe(key, 1, cached != null ? 1 : 0);
+            commitProbe(event, key, 1, cached != null ? 1 : 0);
         }
         return null;
     }
 
+    // Unversioned write: only replaces entries that are themselves unversioned or at version 0
     public void set(String key, Object value, int ttlSeconds) {
-        try (Jedis jedis = connectionPool.getJedisPool().getResource()) {
+        set(key, value, ttlSeconds, 0L);
+    }
+
+    // Version from readDataVersion (taken before the data was read) or publishDataVersion; the write is
+    // dropped if the key already holds a newer version. A null value caches the absence of one.
+    public void set(String key, Object value, int ttlSeconds, long version) {
+        if (hasUnknownGeneration(key)) {
+            return;
+        }
+        CacheWriteEvent event = new CacheWriteEvent();
+        event.begin();
+        boolean written = false;
+        try (Jedis jedis = connectionPool.getJedisPool(key).getResource()) {
             String json = objectMapper.writeValueAsString(value);
-            jedis.setex(key, ttlSeconds, json);
-            logger.debug("Cached result for key: {}", key);
+            written = writeVersioned(jedis, Collections.singletonList(key), Collections.singletonList(json),
+                    ttlSeconds, version)[0];
+            logger.debug(written ? "Cached result for key: {}" : "Newer entry already cached for key: {}", key);
         } catch (JsonProcessingException e) {
             logger.warn("Cache write error for key {}: {}", key, e.getMessage());
+        } finally {
+            commitWrite(event, key, 1);
+        }
+        if (written) {
+            storeLocally(value, ttlSeconds);
+        } else {
+            dropLocally(value);
+        }
+    }
+
+    // Off-heap matrix first, then Redis; Redis hits are copied into the matrix
+    public CombinedTariff getCombinedTariff(String key, String itemId, String country) {
+        CombinedTariff local = getLocalTariff(key, itemId, country);
+        if (local != null) {
+            return local;
+        }
+        CombinedTariff cached = get(key, CombinedTariff.class);
+        if (cached != null) {
+            storeLocally(cached, tariffMatrixTtl);
+        }
+        return cached;
+    }
+
+    // Same as getCombinedTariff for several countries, keyed by country; only the countries the
+    // matrix cannot serve go to Redis, in one MGET per shard
+    public Map<String, CombinedTariff> getCombinedTariffs(String itemId, Map<String, String> keysByCountry) {
+        Map<String, CombinedTariff> results = new HashMap<>();
+        List<String> remoteKeys = new ArrayList<>();
+        for (Map.Entry<String, String> entry : keysByCountry.entrySet()) {
+            CombinedTariff local = getLocalTariff(entry.getValue(), itemId, entry.getKey());
+            if (local != null) {
+                results.put(entry.getKey(), local);
+            } else {
+                remoteKeys.add(entry.getValue());
+            }
+        }
+        if (remoteKeys.isEmpty()) {
+            return results;
+        }
+
+        Map<String, CombinedTariff> cached = getAll(remoteKeys, CombinedTariff.class);
+        for (Map.Entry<String, String> entry : keysByCountry.entrySet()) {
+            CombinedTariff hit = cached.get(entry.getValue());
+            if (hit != null) {
+                results.put(entry.getKey(), hit);
+                storeLocally(hit, tariffMatrixTtl);
+            }
+        }
+        return results;
+    }
+
+    // key is the entry's Redis key; the matrix itself is addressed by item and country
+    private CombinedTariff getLocalTariff(String key, String itemId, String country) {
+        long generation = tariffMatrix != null ? currentGeneration(CacheNamespace.CALCULATED_TARIFF) : -1;
+        if (generation < 0) {
+            return null;
+        }
+        CacheProbeEvent event = new CacheProbeEvent();
+        event.begin();
+        CombinedTariff local = tariffMatrix.get(itemId, country, generation);
+        // Misses are counted by the Redis probe that follows
+        if (local != null) {
+            recordProbe(CacheNamespace.CALCULATED_TARIFF, 1, 1);
+        }
+        commitProbe(event, key, 1, local != null ? 1 : 0);
+        return local;
+    }
+
+    // Write-through for calculated tariffs; bounded by the matrix TTL so that nodes which did not
+    // make the write converge on it within that time
+    private void storeLocally(Object value, int ttlSeconds) {
+        if (tariffMatrix == null || !(value instanceof CombinedTariff)) {
+            return;
+        }
+        long generation = currentGeneration(CacheNamespace.CALCULATED_TARIFF);
+        if (generation >= 0) {
+            long expiresAt = System.currentTimeMillis() + Math.min(ttlSeconds, tariffMatrixTtl) * 1000L;
+            tariffMatrix.put((CombinedTariff) value, generation, expiresAt);
+        }
+    }
+
+    // For a write Redis refused: it holds a newer result, which the next read should fetch rather than
+    // find an older local copy
+    private void dropLocally(Object value) {
+        if (tariffMatrix == null || !(value instanceof CombinedTariff)) {
+            return;
+        }
+        CombinedTariff tariff = (CombinedTariff) value;
+        if (tariff.getItemId() != null && tariff.getCountryCode() != null) {
+            tariffMatrix.remove(tariff.getItemId(), tariff.getCountryCode());
+        }
+    }
+
+    public OffHeapTariffStore getTariffMatrix() {
+        return tariffMatrix;
+    }
+
+    public <T> Map<String, T> getAll(List<String> keys, Class<T> clazz) {
+        Map<String, T> results = new ConcurrentHashMap<>();
+        if (keys.isEmpty()) {
+            return results;
+        }
+        List<String> remoteKeys = withKnownGeneration(keys);
+        if (remoteKeys.isEmpty()) {
+            recordProbe(keys.get(0), keys.size(), 0);
+            return results;
+        }
+        CacheProbeEvent event = new CacheProbeEvent();
+        event.begin();
+        try {
+            // One MGET per shard, shards queried in parallel
+            forEachShard(remoteKeys, (pool, shardKeys) -> {
+                try (Jedis jedis = pool.getResource()) {
+                    List<String> cached = jedis.mget(shardKeys.toArray(new String[0]));
+                    for (int i = 0; i < shardKeys.size(); i++) {
+                        String value = cached.get(i);
+                        if (value != null) {
+                            T hit = objectMapper.readValue(payload(value), clazz);
+                            if (hit != null) {
+                                results.put(shardKeys.get(i), hit);
+                            }
+                        }
+                    }
+                }
+            });
+            logger.debug("Cache hits: {}/{}", results.size(), keys.size());
+        } catch (Exception e) {
+            logger.warn("Cache multi-read error for {} keys: {}", keys.size(), e.getMessage());
+        } finally {
+            recordProbe(keys.get(0), keys.size(), results.size());
+            commitProbe(event, keys.get(0), keys.size(), results.size());
+        }
+        return results;
+    }
+
+    public boolean setAll(Map<String, ?> values, int ttlSeconds) {
+        return setAll(values, ttlSeconds, 0L);
+    }
+
+    // Versioned like set; keys that already hold a newer version are left alone, which is not a failure
+    public boolean setAll(Map<String, ?> values, int ttlSeconds, long version) {
+        List<String> keys = withKnownGeneration(new ArrayList<>(values.keySet()));
+        if (keys.isEmpty()) {
+            return true;
+        }
+        Set<String> written = ConcurrentHashMap.newKeySet();
+        boolean complete;
+        CacheWriteEvent event = new CacheWriteEvent();
+        event.begin();
+        try {
+            // One pipeline per shard, shards written in parallel
+            forEachShard(keys, (pool, shardKeys) -> {
+                List<String> jsons = new ArrayList<>(shardKeys.size());
+                for (String key : shardKeys) {
+                    jsons.add(objectMapper.writeValueAsString(values.get(key)));
+                }
+                try (Jedis jedis = pool.getResource()) {
+                    boolean[] accepted = writeVersioned(jedis, shardKeys, jsons, ttlSeconds, version);
+                    for (int i = 0; i < accepted.length; i++) {
+                        if (accepted[i]) {
+                            written.add(shardKeys.get(i));
+                        }
+                    }
+                }
+            });
+            logger.debug("Cached {} of {} results in one pipeline per shard", written.size(), keys.size());
+            complete = true;
+        } catch (Exception e) {
+            logger.warn("Cache pipelined write error for {} keys: {}", keys.size(), e.getMessage());
+            complete = false;
+        } finally {
+            commitWrite(event, keys.get(0), keys.size());
+        }
+        for (String key : keys) {
+            if (written.contains(key)) {
+                storeLocally(values.get(key), ttlSeconds);
+            } else {
+                dropLocally(values.get(key));
+            }
+        }
+        return complete;
+    }
+
+    // One EVALSHA of the compare-and-set script per key, in a single pipeline. If the server does not
+    // have the script (first use, restart, SCRIPT FLUSH) it is loaded and the batch sent once more.
+    // accepted[i] is false when keys[i] already holds a newer version.
+    private static boolean[] writeVersioned(Jedis jedis, List<String> keys, List<String> jsons,
+                                            int ttlSeconds, long version) {
+        String versionArg = Long.toString(version);
+        String ttlArg = Integer.toString(ttlSeconds);
+        for (int attempt = 0; ; attempt++) {
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<Object>> responses = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                responses.add(pipeline.evalsha(VERSIONED_SET_SHA, Collections.singletonList(keys.get(i)),
+                        Arrays.asList(versionArg, jsons.get(i), ttlArg)));
+            }
+            pipeline.sync();
+            try {
+                boolean[] accepted = new boolean[keys.size()];
+                for (int i = 0; i < accepted.length; i++) {
+                    accepted[i] = Long.valueOf(1L).equals(responses.get(i).get());
+                }
+                return accepted;
+            } catch (JedisNoScriptException e) {
+                if (attempt > 0) {
+                    throw e;
+                }
+                jedis.scriptLoad(VERSIONED_SET_SCRIPT);
+            }
+        }
+    }
+
+    // Entries written before versioning are bare JSON, which never starts with a digit
+    private static String payload(String stored) {
+        if (stored.isEmpty() || !Character.isDigit(stored.charAt(0))) {
+            return stored;
+        }
+        int separator = stored.indexOf(':');
+        return separator < 0 ? stored : stored.substring(separator + 1);
+    }
+
+    private static String sha1Hex(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    public void close() {
+        shardExecutor.shutdown();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getHitCount(CacheNamespace namespace) {
+        return namespaceHits[namespace.ordinal()].sum();
+    }
+
+    public long getMissCount(CacheNamespace namespace) {
+        return namespaceMisses[namespace.ordinal()].sum();
+    }
+
+    // Multi-key probes are attributed to the namespace of their first key; callers never mix namespaces
+    private void recordProbe(String key, int keyCount, int hitCount) {
+        recordProbe(CacheNamespace.fromValue(namespaceOf(key)), keyCount, hitCount);
+    }
+
+    private void recordProbe(CacheNamespace namespace, int keyCount, int hitCount) {
+        hits.add(hitCount);
+        misses.add(keyCount - hitCount);
+        if (namespace != null) {
+            namespaceHits[namespace.ordinal()].add(hitCount);
+            namespaceMisses[namespace.ordinal()].add(keyCount - hitCount);
+        }
+    }
+
+    private void forEachShard(List<String> keys, ShardTask task) throws Exception {
+        List<JedisPool> pools = connectionPool.getJedisPools();
+        if (pools.size() == 1) {
+            task.run(pools.get(0), keys);
+            return;
+        }
+
+        Map<Integer, List<String>> keysByShard = new HashMap<>();
+        for (String key : keys) {
+            keysByShard.computeIfAbsent(connectionPool.getShardIndex(key), k -> new ArrayList<>()).add(key);
+        }
+
+        // Run the first shard on the calling thread and fan the rest out
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        Map.Entry<Integer, List<String>> local = null;
+        for (Map.Entry<Integer, List<String>> entry : keysByShard.entrySet()) {
+            if (local == null) {
+                local = entry;
+                continue;
+            }
+            JedisPool pool = pools.get(entry.getKey());
+            List<String> shardKeys = entry.getValue();
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    task.run(pool, shardKeys);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, shardExecutor));
+        }
+
+        task.run(pools.get(local.getKey()), local.getValue());
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static void commitProbe(CacheProbeEvent event, String key, int keyCount, int hitCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.namespace = namespaceOf(key);
+            event.keyCount = keyCount;
+            event.hitCount = hitCount;
+            event.commit();
+        }
+    }
+
+    private static void commitWrite(CacheWriteEvent event, String key, int keyCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.namespace = namespaceOf(key);
+            event.keyCount = keyCount;
+            event.commit();
+        }
+    }
+
+    private static String namespaceOf(String key) {
+        int separator = key.indexOf(':');
+        return separator < 0 ? key : key.substring(0, separator);
+    }
+
+    @FunctionalInterface
+    private interface ShardTask {
+        void run(JedisPool pool, List<String> keys) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface JsonReader<T> {
+        T read(String json) throws IOException;
+    }
+
+    // A counter kept in Redis and cached in memory between refreshes; -1 until first read
+    private class SharedCounter {
+        private final AtomicLong value = new AtomicLong(-1);
+        // Starts one interval in the past so the first caller reads the generation straight away
+        private final AtomicLong refreshedAt = new AtomicLong(System.nanoTime() - generationRefreshNanos);
+
+        long get() {
+            return value.get();
+        }
+
+        // Never backwards, whichever of a refresh and a local write finishes last
+        void advance(long newValue) {
+            value.accumulateAndGet(newValue, Math::max);
         }
     }
 }
\ No newline at end of file
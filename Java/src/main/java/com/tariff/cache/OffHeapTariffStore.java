@@ -0,0 +1,510 @@
+package com.tariff.cache;
+
+import com.tariff.enums.TariffCombinationPolicy;
+import com.tariff.model.CombinedTariff;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+// Node-local store for the item x country CombinedTariff matrix. Each entry is a fixed-size record
+// in a direct or memory-mapped buffer, so tens of millions of entries add nothing for the GC to trace.
+// Keys hash to one of N segments; each segment has its own open-addressing index (linear probing),
+// clock hand and StampedLock. Reads are optimistic and never block; a read that overlaps a write
+// retries, and after a few attempts falls back to the read lock.
+public class OffHeapTariffStore {
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapTariffStore.class);
+
+    // Record layout
+    private static final int HASH = 0;
+    private static final int EXPIRES_AT = 8;
+    private static final int GENERATION = 16;
+    private static final int ITEM_RATE = 24;
+    private static final int COMPONENT_RATE = 32;
+    private static final int FINAL_RATE = 40;
+    private static final int CALCULATED_SECONDS = 48;
+    private static final int CALCULATED_NANOS = 56;
+    private static final int ITEM_SCALE = 60;
+    private static final int COMPONENT_SCALE = 61;
+    private static final int FINAL_SCALE = 62;
+    private static final int POLICY = 63;
+    private static final int ITEM_LENGTH = 64;
+    private static final int COUNTRY_LENGTH = 66;
+    private static final int COMPONENTS_LENGTH = 68;
+    private static final int COMPONENT_COUNT = 70;
+    // Item id, country code, then component ids separated by NUL
+    private static final int DATA = 72;
+
+    private static final long TAG_MASK = 0xFFFFFFFF00000000L;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final int OPTIMISTIC_ATTEMPTS = 4;
+    private static final TariffCombinationPolicy[] POLICIES = TariffCombinationPolicy.values();
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final int recordBytes;
+    private final ThreadLocal<Scratch> scratch;
+
+    // directory == null keeps the segments in direct memory; otherwise each segment is a mapped file
+    public OffHeapTariffStore(long maxEntries, int segmentCount, int recordBytes, Path directory) throws IOException {
+        if (Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("segment count must be a power of two: " + segmentCount);
+        }
+        if (recordBytes < DATA + 8) {
+            throw new IllegalArgumentException("record size must be at least " + (DATA + 8) + " bytes");
+        }
+        this.recordBytes = recordBytes;
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(recordBytes));
+
+        int recordsPerSegment = (int) Math.min(Integer.MAX_VALUE, (maxEntries + segmentCount - 1) / segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(recordsPerSegment, recordBytes,
+                    directory != null ? directory.resolve("tariff-matrix-" + i + ".bin") : null);
+        }
+        logger.info("Off-heap tariff store: {} segments x {} records x {} bytes ({} MB, {})",
+                segmentCount, recordsPerSegment, recordBytes,
+                (long) segmentCount * segments[0].buffer.capacity() / (1024 * 1024),
+                directory != null ? "mapped under " + directory : "direct");
+    }
+
+    // Returns null on a miss, an expired entry or an entry written under another cache generation
+    public CombinedTariff get(String itemId, String country, long generation) {
+        byte[] item = itemId.getBytes(StandardCharsets.UTF_8);
+        byte[] countryCode = country.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(item, countryCode);
+        Segment segment = segments[segmentIndex(hash)];
+        Scratch local = scratch.get();
+
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = segment.lock.tryOptimisticRead();
+            if (stamp == 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            // Anything read here may be torn; it is only trusted once validate() passes
+            int record = segment.find(hash, item, countryCode);
+            if (record >= 0) {
+                segment.copyRecord(record, local.bytes);
+            }
+            if (segment.lock.validate(stamp)) {
+                return record >= 0 ? decodeLive(segment, record, local, generation) : null;
+            }
+        }
+
+        int record;
+        long stamp = segment.lock.readLock();
+        try {
+            record = segment.find(hash, item, countryCode);
+            if (record < 0) {
+                return null;
+            }
+            segment.copyRecord(record, local.bytes);
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+        return decodeLive(segment, record, local, generation);
+    }
+
+    // Returns false when the entry does not fit the fixed record size or its rates cannot be stored exactly.
+    // Any entry already stored for the key is then expired, so readers fall through to Redis rather than
+    // keep getting the value this one replaces.
+    public boolean put(CombinedTariff tariff, long generation, long expiresAtMillis) {
+        if (tariff.getItemId() == null || tariff.getCountryCode() == null) {
+            return false;
+        }
+        byte[] item = tariff.getItemId().getBytes(StandardCharsets.UTF_8);
+        byte[] countryCode = tariff.getCountryCode().getBytes(StandardCharsets.UTF_8);
+        long hash = hash(item, countryCode);
+        Scratch local = scratch.get();
+        int length = encode(tariff, hash, item, countryCode, generation, expiresAtMillis, local);
+
+        Segment segment = segments[segmentIndex(hash)];
+        long stamp = segment.lock.writeLock();
+        try {
+            int record = segment.find(hash, item, countryCode);
+            if (length < 0) {
+                if (record >= 0) {
+                    segment.expire(record);
+                }
+                return false;
+            }
+            if (record < 0) {
+                record = segment.allocate();
+                segment.insertIndex(hash, record);
+            }
+            segment.writeRecord(record, local.bytes, length);
+            segment.reference(record);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+        return true;
+    }
+
+    // Expires the entry stored for the key, if any; its slot is reused once the clock reaches it
+    public boolean remove(String itemId, String country) {
+        byte[] item = itemId.getBytes(StandardCharsets.UTF_8);
+        byte[] countryCode = country.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(item, countryCode);
+        Segment segment = segments[segmentIndex(hash)];
+        long stamp = segment.lock.writeLock();
+        try {
+            int record = segment.find(hash, item, countryCode);
+            if (record < 0) {
+                return false;
+            }
+            segment.expire(record);
+            return true;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.used;
+        }
+        return size;
+    }
+
+    public long capacity() {
+        return (long) segments.length * segments[0].records;
+    }
+
+    public long getEvictionCount() {
+        long evictions = 0;
+        for (Segment segment : segments) {
+            evictions += segment.evictions;
+        }
+        return evictions;
+    }
+
+    private int segmentIndex(long hash) {
+        return segmentShift == 64 ? 0 : (int) (hash >>> segmentShift);
+    }
+
+    private CombinedTariff decodeLive(Segment segment, int record, Scratch local, long generation) {
+        ByteBuffer view = local.view;
+        if (view.getLong(GENERATION) != generation || view.getLong(EXPIRES_AT) <= System.currentTimeMillis()) {
+            return null;
+        }
+        segment.reference(record);
+
+        byte[] bytes = local.bytes;
+        int itemLength = view.getShort(ITEM_LENGTH);
+        int countryLength = view.getShort(COUNTRY_LENGTH);
+        int componentsLength = view.getShort(COMPONENTS_LENGTH);
+        int componentCount = view.getShort(COMPONENT_COUNT);
+
+        int offset = DATA;
+        String itemId = new String(bytes, offset, itemLength, StandardCharsets.UTF_8);
+        offset += itemLength;
+        String country = new String(bytes, offset, countryLength, StandardCharsets.UTF_8);
+        offset += countryLength;
+
+        List<String> componentsUsed = new ArrayList<>(componentCount);
+        int end = offset + componentsLength;
+        int start = offset;
+        for (int i = offset; i <= end && componentCount > 0; i++) {
+            if (i == end || bytes[i] == 0) {
+                componentsUsed.add(new String(bytes, start, i - start, StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+
+        long seconds = view.getLong(CALCULATED_SECONDS);
+        LocalDateTime calculatedAt = seconds == NO_TIMESTAMP ? null
+                : LocalDateTime.ofEpochSecond(seconds, view.getInt(CALCULATED_NANOS), ZoneOffset.UTC);
+
+        return new CombinedTariff(
+                itemId,
+                country,
+                BigDecimal.valueOf(view.getLong(ITEM_RATE), view.get(ITEM_SCALE)),
+                BigDecimal.valueOf(view.getLong(COMPONENT_RATE), view.get(COMPONENT_SCALE)),
+                BigDecimal.valueOf(view.getLong(FINAL_RATE), view.get(FINAL_SCALE)),
+                POLICIES[view.get(POLICY)],
+                componentsUsed,
+                calculatedAt
+        );
+    }
+
+    private int encode(CombinedTariff tariff, long hash, byte[] item, byte[] countryCode,
+                       long generation, long expiresAtMillis, Scratch local) {
+        if (!fitsLong(tariff.getItemTariffRate()) || !fitsLong(tariff.getComponentTariffRate())
+                || !fitsLong(tariff.getFinalTariffRate()) || tariff.getCombinationPolicy() == null) {
+            return -1;
+        }
+        List<String> componentsUsed = tariff.getComponentsUsed() != null ? tariff.getComponentsUsed() : List.of();
+
+        byte[] bytes = local.bytes;
+        ByteBuffer view = local.view;
+        int offset = DATA;
+        if (offset + item.length + countryCode.length > recordBytes) {
+            return -1;
+        }
+        System.arraycopy(item, 0, bytes, offset, item.length);
+        offset += item.length;
+        System.arraycopy(countryCode, 0, bytes, offset, countryCode.length);
+        offset += countryCode.length;
+
+        int componentsStart = offset;
+        for (int i = 0; i < componentsUsed.size(); i++) {
+            byte[] component = componentsUsed.get(i).getBytes(StandardCharsets.UTF_8);
+            int needed = component.length + (i > 0 ? 1 : 0);
+            if (offset + needed > recordBytes) {
+                return -1;
+            }
+            if (i > 0) {
+                bytes[offset++] = 0;
+            }
+            System.arraycopy(component, 0, bytes, offset, component.length);
+            offset += component.length;
+        }
+
+        view.putLong(HASH, hash);
+        view.putLong(EXPIRES_AT, expiresAtMillis);
+        view.putLong(GENERATION, generation);
+        putRate(view, ITEM_RATE, ITEM_SCALE, tariff.getItemTariffRate());
+        putRate(view, COMPONENT_RATE, COMPONENT_SCALE, tariff.getComponentTariffRate());
+        putRate(view, FINAL_RATE, FINAL_SCALE, tariff.getFinalTariffRate());
+        LocalDateTime calculatedAt = tariff.getCalculationTimestamp();
+        view.putLong(CALCULATED_SECONDS, calculatedAt != null ? calculatedAt.toEpochSecond(ZoneOffset.UTC) : NO_TIMESTAMP);
+        view.putInt(CALCULATED_NANOS, calculatedAt != null ? calculatedAt.getNano() : 0);
+        view.put(POLICY, (byte) tariff.getCombinationPolicy().ordinal());
+        view.putShort(ITEM_LENGTH, (short) item.length);
+        view.putShort(COUNTRY_LENGTH, (short) countryCode.length);
+        view.putShort(COMPONENTS_LENGTH, (short) (offset - componentsStart));
+        view.putShort(COMPONENT_COUNT, (short) componentsUsed.size());
+        return offset;
+    }
+
+    // Rates are stored exactly as unscaled long + scale, never as doubles
+    private static boolean fitsLong(BigDecimal rate) {
+        return rate != null && rate.unscaledValue().bitLength() < 64
+                && rate.scale() >= Byte.MIN_VALUE && rate.scale() <= Byte.MAX_VALUE;
+    }
+
+    private static void putRate(ByteBuffer view, int valueOffset, int scaleOffset, BigDecimal rate) {
+        BigInteger unscaled = rate.unscaledValue();
+        view.putLong(valueOffset, unscaled.longValue());
+        view.put(scaleOffset, (byte) rate.scale());
+    }
+
+    // FNV-1a over the key bytes, finished with the murmur3 fmix64 avalanche
+    private static long hash(byte[] item, byte[] country) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : item) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        h = (h ^ 0xff) * 0x100000001b3L;
+        for (byte b : country) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Scratch {
+        private final byte[] bytes;
+        private final ByteBuffer view;
+
+        private Scratch(int recordBytes) {
+            this.bytes = new byte[recordBytes];
+            this.view = ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    // Buffer layout: index (long per slot), reference bits (byte per record), records
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private final ByteBuffer buffer;
+        // Private cursor for bulk writes; only touched under the write lock
+        private final ByteBuffer writeView;
+        private final int records;
+        private final int recordBytes;
+        private final int indexMask;
+        private final int referenceBase;
+        private final int recordBase;
+
+        // Written under the write lock, read racily for stats
+        private volatile int used;
+        private volatile long evictions;
+        private int hand;
+
+        private Segment(int records, int recordBytes, Path file) throws IOException {
+            this.records = records;
+            this.recordBytes = recordBytes;
+            // At most half full, which keeps linear-probe chains short
+            int indexSlots = Integer.highestOneBit(Math.max(2, records) * 2 - 1) << 1;
+            this.indexMask = indexSlots - 1;
+            this.referenceBase = indexSlots * Long.BYTES;
+            this.recordBase = referenceBase + records;
+
+            long bytes = (long) recordBase + (long) records * recordBytes;
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Off-heap segment exceeds 2 GB; use more segments");
+            }
+            this.buffer = allocate((int) bytes, file).order(ByteOrder.nativeOrder());
+            this.writeView = buffer.duplicate().order(ByteOrder.nativeOrder());
+        }
+
+        private static ByteBuffer allocate(int bytes, Path file) throws IOException {
+            if (file == null) {
+                return ByteBuffer.allocateDirect(bytes);
+            }
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // Start from a zeroed (sparse) file; a previous run's contents are not trusted
+                channel.truncate(0);
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            }
+        }
+
+        private int recordOffset(int record) {
+            return recordBase + record * recordBytes;
+        }
+
+        // Bounded and range-checked so that a torn optimistic read cannot loop or go out of bounds
+        private int find(long hash, byte[] item, byte[] country) {
+            int slot = (int) hash & indexMask;
+            for (int probes = 0; probes <= indexMask; probes++) {
+                long entry = buffer.getLong(slot * Long.BYTES);
+                if (entry == 0) {
+                    return -1;
+                }
+                if ((entry & TAG_MASK) == (hash & TAG_MASK)) {
+                    int record = (int) entry - 1;
+                    if (record >= 0 && record < records && matches(record, hash, item, country)) {
+                        return record;
+                    }
+                }
+                slot = (slot + 1) & indexMask;
+            }
+            return -1;
+        }
+
+        private boolean matches(int record, long hash, byte[] item, byte[] country) {
+            int base = recordOffset(record);
+            if (buffer.getLong(base + HASH) != hash
+                    || buffer.getShort(base + ITEM_LENGTH) != item.length
+                    || buffer.getShort(base + COUNTRY_LENGTH) != country.length
+                    || DATA + item.length + country.length > recordBytes) {
+                return false;
+            }
+            int offset = base + DATA;
+            for (byte b : item) {
+                if (buffer.get(offset++) != b) {
+                    return false;
+                }
+            }
+            for (byte b : country) {
+                if (buffer.get(offset++) != b) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void copyRecord(int record, byte[] destination) {
+            buffer.get(recordOffset(record), destination, 0, recordBytes);
+        }
+
+        private void writeRecord(int record, byte[] source, int length) {
+            writeView.position(recordOffset(record));
+            writeView.put(source, 0, length);
+        }
+
+        // Racy by design: a lost update only costs one extra trip round the clock
+        private void reference(int record) {
+            buffer.put(referenceBase + record, (byte) 1);
+        }
+
+        // Leaves the record indexed but dead to readers, and first in line for the clock
+        private void expire(int record) {
+            buffer.putLong(recordOffset(record) + EXPIRES_AT, 0L);
+            buffer.put(referenceBase + record, (byte) 0);
+        }
+
+        private void insertIndex(long hash, int record) {
+            int slot = (int) hash & indexMask;
+            while (buffer.getLong(slot * Long.BYTES) != 0) {
+                slot = (slot + 1) & indexMask;
+            }
+            buffer.putLong(slot * Long.BYTES, (hash & TAG_MASK) | (record + 1));
+        }
+
+        // Free slot while the segment fills, then clock: clear reference bits until an
+        // unreferenced record comes round, and evict it
+        private int allocate() {
+            if (used < records) {
+                return used++;
+            }
+            for (int step = 0; ; step++) {
+                int record = hand;
+                hand = hand + 1 == records ? 0 : hand + 1;
+                // Two full sweeps always clear every bit, unless readers keep setting them
+                if (buffer.get(referenceBase + record) != 0 && step < 2 * records) {
+                    buffer.put(referenceBase + record, (byte) 0);
+                    continue;
+                }
+                removeIndex(record);
+                evictions++;
+                return record;
+            }
+        }
+
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        private void removeIndex(int record) {
+            long hash = buffer.getLong(recordOffset(record) + HASH);
+            int hole = (int) hash & indexMask;
+            while (true) {
+                long entry = buffer.getLong(hole * Long.BYTES);
+                if (entry == 0) {
+                    return;
+                }
+                if ((int) entry - 1 == record) {
+                    break;
+                }
+                hole = (hole + 1) & indexMask;
+            }
+
+            int slot = hole;
+            while (true) {
+                slot = (slot + 1) & indexMask;
+                long entry = buffer.getLong(slot * Long.BYTES);
+                if (entry == 0) {
+                    break;
+                }
+                int home = (int) buffer.getLong(recordOffset((int) entry - 1) + HASH) & indexMask;
+                // Move the entry back unless its home lies cyclically in (hole, slot]
+                boolean stays = hole <= slot ? (home > hole && home <= slot) : (home > hole || home <= slot);
+                if (!stays) {
+                    buffer.putLong(hole * Long.BYTES, entry);
+                    hole = slot;
+                }
+            }
+            buffer.putLong(hole * Long.BYTES, 0L);
+        }
+    }
+}
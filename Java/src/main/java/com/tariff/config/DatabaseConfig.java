@@ -1,5 +1,8 @@
 package com.tariff.config;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class DatabaseConfig {
     private String dbHost;
     private int dbPort;
@@ -8,14 +11,37 @@ public class DatabaseConfig {
     private String dbPassword;
     private int dbPoolMinSize;
     private int dbPoolMaxSize;
+    private List<String> dbReplicas;
+    private int dbReplicaPoolMaxSize;
+    private long dbReplicaMaxLagMs;
+    private long dbReplicaCheckIntervalMs;
 
     private String redisHost;
     private int redisPort;
     private int redisDb;
     private String redisPassword;
+    private List<String> redisNodes;
+    private int redisVirtualNodes;
 
     private int cacheTtl;
     private int bomCacheTtl;
+    private long cacheGenerationRefreshMs;
+    private boolean offHeapCacheEnabled;
+    private long offHeapCacheEntries;
+    private int offHeapCacheSegments;
+    private int offHeapCacheRecordBytes;
+    private int offHeapCacheTtl;
+    private String offHeapCacheDir;
+
+    private int interactiveThreads;
+    private int bulkThreads;
+    private int interactiveDeadlineMs;
+    private int bulkDeadlineMs;
+
+    private boolean changeFeedEnabled;
+    private long changeFeedPollMs;
+    private int changeFeedBatchSize;
+    private int changeFeedRefreshItems;
 
     public DatabaseConfig() {
         this.dbHost = System.getProperty("DB_HOST", "localhost");
@@ -25,14 +51,49 @@ public class DatabaseConfig {
         this.dbPassword = System.getProperty("DB_PASSWORD", "postgres");
         this.dbPoolMinSize = Integer.parseInt(System.getProperty("DB_POOL_MIN_SIZE", "10"));
         this.dbPoolMaxSize = Integer.parseInt(System.getProperty("DB_POOL_MAX_SIZE", "50"));
+        this.dbReplicas = parseHostPorts(System.getProperty("DB_REPLICAS", ""));
+        this.dbReplicaPoolMaxSize = Integer.parseInt(System.getProperty("DB_REPLICA_POOL_MAX_SIZE",
+                String.valueOf(this.dbPoolMaxSize)));
+        this.dbReplicaMaxLagMs = Long.parseLong(System.getProperty("DB_REPLICA_MAX_LAG_MS", "5000"));
+        this.dbReplicaCheckIntervalMs = Long.parseLong(System.getProperty("DB_REPLICA_CHECK_INTERVAL_MS", "1000"));
 
         this.redisHost = System.getProperty("REDIS_HOST", "localhost");
         this.redisPort = Integer.parseInt(System.getProperty("REDIS_PORT", "6379"));
         this.redisDb = Integer.parseInt(System.getProperty("REDIS_DB", "0"));
         this.redisPassword = System.getProperty("REDIS_PASSWORD");
+        this.redisNodes = parseHostPorts(System.getProperty("REDIS_NODES",
+                this.redisHost + ":" + this.redisPort));
+        if (this.redisNodes.isEmpty()) {
+            throw new IllegalArgumentException("REDIS_NODES must list at least one node");
+        }
+        this.redisVirtualNodes = Integer.parseInt(System.getProperty("REDIS_VIRTUAL_NODES", "160"));
 
         this.cacheTtl = Integer.parseInt(System.getProperty("CACHE_TTL", "3600"));
         this.bomCacheTtl = Integer.parseInt(System.getProperty("BOM_CACHE_TTL", "7200"));
+        this.cacheGenerationRefreshMs = Long.parseLong(System.getProperty("CACHE_GENERATION_REFRESH_MS", "1000"));
+        this.offHeapCacheEnabled = Boolean.parseBoolean(System.getProperty("OFFHEAP_CACHE_ENABLED", "false"));
+        this.offHeapCacheEntries = Long.parseLong(System.getProperty("OFFHEAP_CACHE_ENTRIES", "1000000"));
+        this.offHeapCacheSegments = Integer.parseInt(System.getProperty("OFFHEAP_CACHE_SEGMENTS", "64"));
+        this.offHeapCacheRecordBytes = Integer.parseInt(System.getProperty("OFFHEAP_CACHE_RECORD_BYTES", "256"));
+        this.offHeapCacheTtl = Integer.parseInt(System.getProperty("OFFHEAP_CACHE_TTL", "60"));
+        this.offHeapCacheDir = System.getProperty("OFFHEAP_CACHE_DIR", "");
+
+        this.interactiveThreads = Integer.parseInt(System.getProperty("SCHEDULER_INTERACTIVE_THREADS", "20"));
+        this.bulkThreads = Integer.parseInt(System.getProperty("SCHEDULER_BULK_THREADS", "8"));
+        this.interactiveDeadlineMs = Integer.parseInt(System.getProperty("INTERACTIVE_DEADLINE_MS", "2000"));
+        this.bulkDeadlineMs = Integer.parseInt(System.getProperty("BULK_DEADLINE_MS", "60000"));
+
+        this.changeFeedEnabled = Boolean.parseBoolean(System.getProperty("CHANGE_FEED_ENABLED", "false"));
+        this.changeFeedPollMs = Long.parseLong(System.getProperty("CHANGE_FEED_POLL_MS", "5000"));
+        // Handed to pgjdbc's getNotifications(int), where 0 means wait forever
+        if (this.changeFeedPollMs <= 0 || this.changeFeedPollMs > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("CHANGE_FEED_POLL_MS must be between 1 and " + Integer.MAX_VALUE);
+        }
+        this.changeFeedBatchSize = Integer.parseInt(System.getProperty("CHANGE_FEED_BATCH_SIZE", "1000"));
+        this.changeFeedRefreshItems = Integer.parseInt(System.getProperty("CHANGE_FEED_REFRESH_ITEMS", "200"));
+        if (this.changeFeedBatchSize <= 0 || this.changeFeedRefreshItems <= 0) {
+            throw new IllegalArgumentException("CHANGE_FEED_BATCH_SIZE and CHANGE_FEED_REFRESH_ITEMS must be positive");
+        }
     }
 
     // Getters
@@ -43,10 +104,47 @@ public class DatabaseConfig {
     public String getDbPassword() { return dbPassword; }
     public int getDbPoolMinSize() { return dbPoolMinSize; }
     public int getDbPoolMaxSize() { return dbPoolMaxSize; }
+    public List<String> getDbReplicas() { return dbReplicas; }
+    public int getDbReplicaPoolMaxSize() { return dbReplicaPoolMaxSize; }
+    public long getDbReplicaMaxLagMs() { return dbReplicaMaxLagMs; }
+    public long getDbReplicaCheckIntervalMs() { return dbReplicaCheckIntervalMs; }
     public String getRedisHost() { return redisHost; }
     public int getRedisPort() { return redisPort; }
     public int getRedisDb() { return redisDb; }
     public String getRedisPassword() { return redisPassword; }
+    public List<String> getRedisNodes() { return redisNodes; }
+    public int getRedisVirtualNodes() { return redisVirtualNodes; }
     public int getCacheTtl() { return cacheTtl; }
     public int getBomCacheTtl() { return bomCacheTtl; }
+    public long getCacheGenerationRefreshMs() { return cacheGenerationRefreshMs; }
+    public boolean isOffHeapCacheEnabled() { return offHeapCacheEnabled; }
+    public long getOffHeapCacheEntries() { return offHeapCacheEntries; }
+    public int getOffHeapCacheSegments() { return offHeapCacheSegments; }
+    public int getOffHeapCacheRecordBytes() { return offHeapCacheRecordBytes; }
+    public int getOffHeapCacheTtl() { return offHeapCacheTtl; }
+    public String getOffHeapCacheDir() { return offHeapCacheDir; }
+    public int getInteractiveThreads() { return interactiveThreads; }
+    public int getBulkThreads() { return bulkThreads; }
+    public int getInteractiveDeadlineMs() { return interactiveDeadlineMs; }
+    public int getBulkDeadlineMs() { return bulkDeadlineMs; }
+    public boolean isChangeFeedEnabled() { return changeFeedEnabled; }
+    public long getChangeFeedPollMs() { return changeFeedPollMs; }
+    public int getChangeFeedBatchSize() { return changeFeedBatchSize; }
+    public int getChangeFeedRefreshItems() { return changeFeedRefreshItems; }
+
+    // Comma-separated host:port list, e.g. "localhost:6379,localhost:6380"
+    private static List<String> parseHostPorts(String nodes) {
+        List<String> result = new ArrayList<>();
+        for (String node : nodes.split(",")) {
+            String trimmed = node.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (trimmed.lastIndexOf(':') <= 0) {
+                throw new IllegalArgumentException("Node must be host:port: " + trimmed);
+            }
+            result.add(trimmed);
+        }
+        return result;
+    }
 }
@@ -0,0 +1,49 @@
+package com.tariff.config;
+
+public class GeneratorConfig {
+    private int items;
+    private int components;
+    private int bomMin;
+    private int bomMax;
+    private String bomDistribution;
+    private double variantShare;
+    private int countries;
+    private double tariffShare;
+    private double historyShare;
+    private int policyVersions;
+    private String policyMix;
+    private long seed;
+    private boolean truncate;
+
+    public GeneratorConfig() {
+        this.items = Integer.parseInt(System.getProperty("GEN_ITEMS", "10000"));
+        this.components = Integer.parseInt(System.getProperty("GEN_COMPONENTS", "2000"));
+        this.bomMin = Integer.parseInt(System.getProperty("GEN_BOM_MIN", "1"));
+        this.bomMax = Integer.parseInt(System.getProperty("GEN_BOM_MAX", "40"));
+        this.bomDistribution = System.getProperty("GEN_BOM_DISTRIBUTION", "geometric");
+        this.variantShare = Double.parseDouble(System.getProperty("GEN_VARIANT_SHARE", "0.3"));
+        this.countries = Integer.parseInt(System.getProperty("GEN_COUNTRIES", "30"));
+        this.tariffShare = Double.parseDouble(System.getProperty("GEN_TARIFF_SHARE", "0.6"));
+        this.historyShare = Double.parseDouble(System.getProperty("GEN_HISTORY_SHARE", "0.2"));
+        this.policyVersions = Integer.parseInt(System.getProperty("GEN_POLICY_VERSIONS", "20"));
+        this.policyMix = System.getProperty("GEN_POLICY_MIX",
+                "ADDITIVE:0.4,MAXIMUM:0.2,MINIMUM:0.1,ITEM:0.2,COMPONENT:0.1");
+        this.seed = Long.parseLong(System.getProperty("GEN_SEED", "42"));
+        this.truncate = Boolean.parseBoolean(System.getProperty("GEN_TRUNCATE", "false"));
+    }
+
+    // Getters
+    public int getItems() { return items; }
+    public int getComponents() { return components; }
+    public int getBomMin() { return bomMin; }
+    public int getBomMax() { return bomMax; }
+    public String getBomDistribution() { return bomDistribution; }
+    public double getVariantShare() { return variantShare; }
+    public int getCountries() { return countries; }
+    public double getTariffShare() { return tariffShare; }
+    public double getHistoryShare() { return historyShare; }
+    public int getPolicyVersions() { return policyVersions; }
+    public String getPolicyMix() { return policyMix; }
+    public long getSeed() { return seed; }
+    public boolean isTruncate() { return truncate; }
+}
@@ -0,0 +1,45 @@
+package com.tariff.config;
+
+public class LoadTestConfig {
+    private String mode;
+    private String operation;
+    private int threads;
+    private int rate;
+    private int durationSeconds;
+    private int warmupSeconds;
+    private int items;
+    private int countries;
+    private double skew;
+    private int bulkBatchSize;
+    private boolean flushCache;
+    private long seed;
+
+    public LoadTestConfig() {
+        this.mode = System.getProperty("LOAD_MODE", "closed");
+        this.operation = System.getProperty("LOAD_OPERATION", "single");
+        this.threads = Integer.parseInt(System.getProperty("LOAD_THREADS", "32"));
+        this.rate = Integer.parseInt(System.getProperty("LOAD_RATE", "1000"));
+        this.durationSeconds = Integer.parseInt(System.getProperty("LOAD_DURATION", "60"));
+        this.warmupSeconds = Integer.parseInt(System.getProperty("LOAD_WARMUP", "10"));
+        this.items = Integer.parseInt(System.getProperty("LOAD_ITEMS", System.getProperty("GEN_ITEMS", "10000")));
+        this.countries = Integer.parseInt(System.getProperty("LOAD_COUNTRIES", System.getProperty("GEN_COUNTRIES", "30")));
+        this.skew = Double.parseDouble(System.getProperty("LOAD_SKEW", "0.99"));
+        this.bulkBatchSize = Integer.parseInt(System.getProperty("LOAD_BULK_BATCH", "0"));
+        this.flushCache = Boolean.parseBoolean(System.getProperty("LOAD_FLUSH_CACHE", "false"));
+        this.seed = Long.parseLong(System.getProperty("LOAD_SEED", "7"));
+    }
+
+    // Getters
+    public String getMode() { return mode; }
+    public String getOperation() { return operation; }
+    public int getThreads() { return threads; }
+    public int getRate() { return rate; }
+    public int getDurationSeconds() { return durationSeconds; }
+    public int getWarmupSeconds() { return warmupSeconds; }
+    public int getItems() { return items; }
+    public int getCountries() { return countries; }
+    public double getSkew() { return skew; }
+    public int getBulkBatchSize() { return bulkBatchSize; }
+    public boolean isFlushCache() { return flushCache; }
+    public long getSeed() { return seed; }
+}
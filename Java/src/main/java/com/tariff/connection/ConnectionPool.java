@@ -3,20 +3,36 @@ package com.tariff.connection;
 import com.tariff.config.DatabaseConfig;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
 import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ConnectionPool {
     private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
 
     private final DatabaseConfig config;
     private HikariDataSource dataSource;
-    private JedisPool jedisPool;
+    private List<ReplicaDataSource> replicas = Collections.emptyList();
+    private ScheduledExecutorService replicaMonitor;
+    private List<JedisPool> jedisPools;
+    private ConsistentHashRing shardRing;
+    // Replicas must have replayed at least this far to serve reads (see requireReplayLsn)
+    private final AtomicLong minReplayLsn = new AtomicLong();
 
     public ConnectionPool(DatabaseConfig config) {
         this.config = config;
@@ -25,6 +41,7 @@ public class ConnectionPool {
     public void initialize() throws SQLException {
         try {
             initializePostgreSQL();
+            initializeReplicas();
             initializeRedis();
             logger.info("Database and Redis connections initialized successfully");
         } catch (Exception e) {
@@ -34,19 +51,57 @@ public class ConnectionPool {
     }
 
     private void initializePostgreSQL() {
+        HikariConfig hikariConfig = newHikariConfig(config.getDbHost(), config.getDbPort(), config.getDbPoolMaxSize());
+        hikariConfig.setPoolName("primary");
+        hikariConfig.setConnectionTimeout(30000);
+
+        this.dataSource = new HikariDataSource(hikariConfig);
+    }
+
+    private void initializeReplicas() {
+        if (config.getDbReplicas().isEmpty()) {
+            return;
+        }
+
+        List<ReplicaDataSource> replicaList = new ArrayList<>();
+        for (String replica : config.getDbReplicas()) {
+            int separator = replica.lastIndexOf(':');
+            HikariConfig hikariConfig = newHikariConfig(replica.substring(0, separator),
+                    Integer.parseInt(replica.substring(separator + 1)), config.getDbReplicaPoolMaxSize());
+            hikariConfig.setPoolName("replica-" + replica);
+            hikariConfig.setReadOnly(true);
+            // Fail over to the primary quickly instead of queueing on a sick replica
+            hikariConfig.setConnectionTimeout(2000);
+            // A replica that is down at startup must not stop the service from starting
+            hikariConfig.setInitializationFailTimeout(-1);
+            replicaList.add(new ReplicaDataSource(replica, new HikariDataSource(hikariConfig)));
+        }
+        this.replicas = Collections.unmodifiableList(replicaList);
+        replicas.forEach(ReplicaDataSource::refresh);
+
+        this.replicaMonitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        replicaMonitor.scheduleWithFixedDelay(() -> replicas.forEach(ReplicaDataSource::refresh),
+                config.getDbReplicaCheckIntervalMs(), config.getDbReplicaCheckIntervalMs(), TimeUnit.MILLISECONDS);
+
+        logger.info("Routing reads across {} replica(s), max lag {}ms", replicas.size(), config.getDbReplicaMaxLagMs());
+    }
+
+    private HikariConfig newHikariConfig(String host, int port, int maxPoolSize) {
         HikariConfig hikariConfig = new HikariConfig();
         hikariConfig.setJdbcUrl(String.format("jdbc:postgresql://%s:%d/%s",
-                config.getDbHost(), config.getDbPort(), config.getDbName()));
+                host, port, config.getDbName()));
         hikariConfig.setUsername(config.getDbUser());
         hikariConfig.setPassword(config.getDbPassword());
-        hikariConfig.setMinimumIdle(config.getDbPoolMinSize());
-        hikariConfig.setMaximumPoolSize(config.getDbPoolMaxSize());
-        hikariConfig.setConnectionTimeout(30000);
+        hikariConfig.setMinimumIdle(Math.min(config.getDbPoolMinSize(), maxPoolSize));
+        hikariConfig.setMaximumPoolSize(maxPoolSize);
         hikariConfig.setIdleTimeout(600000);
         hikariConfig.setMaxLifetime(1800000);
         hikariConfig.setLeakDetectionThreshold(60000);
-
-        this.dataSource = new HikariDataSource(hikariConfig);
+        return hikariConfig;
     }
 
     private void initializeRedis() {
@@ -58,29 +113,121 @@ public class ConnectionPool {
         poolConfig.setTestOnReturn(true);
         poolConfig.setTestWhileIdle(true);
 
-        if (config.getRedisPassword() != null && !config.getRedisPassword().isEmpty()) {
-            this.jedisPool = new JedisPool(poolConfig, config.getRedisHost(),
-                    config.getRedisPort(), 2000, config.getRedisPassword(), config.getRedisDb());
-        } else {
-            this.jedisPool = new JedisPool(poolConfig, config.getRedisHost(),
-                    config.getRedisPort(), 2000, null, config.getRedisDb());
+        String password = config.getRedisPassword() != null && !config.getRedisPassword().isEmpty()
+                ? config.getRedisPassword() : null;
+
+        List<JedisPool> pools = new ArrayList<>();
+        for (String node : config.getRedisNodes()) {
+            int separator = node.lastIndexOf(':');
+            String host = node.substring(0, separator);
+            int port = Integer.parseInt(node.substring(separator + 1));
+            pools.add(new JedisPool(poolConfig, host, port, 2000, password, config.getRedisDb()));
         }
+
+        this.jedisPools = Collections.unmodifiableList(pools);
+        this.shardRing = new ConsistentHashRing(config.getRedisNodes(), config.getRedisVirtualNodes());
+        logger.info("Redis sharded across {} node(s) with {} virtual nodes each",
+                pools.size(), config.getRedisVirtualNodes());
     }
 
     public Connection getConnection() throws SQLException {
         return dataSource.getConnection();
     }
 
-    public JedisPool getJedisPool() {
-        return jedisPool;
+    // Unpooled primary connection for session-scoped state (LISTEN, advisory locks) that must
+    // not leak back into the pool; the caller owns and closes it
+    public Connection openSessionConnection() throws SQLException {
+        return DriverManager.getConnection(String.format("jdbc:postgresql://%s:%d/%s",
+                        config.getDbHost(), config.getDbPort(), config.getDbName()),
+                config.getDbUser(), config.getDbPassword());
+    }
+
+    // Least-loaded replica within the lag threshold that has replayed up to the required LSN,
+    // falling back to the primary
+    public Connection getReadConnection() throws SQLException {
+        ReplicaDataSource replica = selectReplica();
+        if (replica != null) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                logger.warn("Replica {} unavailable, reading from primary: {}", replica.getName(), e.getMessage());
+            }
+        }
+        return dataSource.getConnection();
+    }
+
+    private ReplicaDataSource selectReplica() {
+        ReplicaDataSource best = null;
+        double bestLoad = Double.MAX_VALUE;
+        for (ReplicaDataSource replica : replicas) {
+            if (!replica.isUsable(config.getDbReplicaMaxLagMs(), minReplayLsn.get())) {
+                continue;
+            }
+            double load = replica.getLoad();
+            if (load < 1.0 && (best == null || load < bestLoad
+                    || (load == bestLoad && replica.getLagMillis() < best.getLagMillis()))) {
+                best = replica;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    // Raises the replay floor for replica reads; it never moves back. Callers pass a primary WAL
+    // position whose writes their reads must see, and replicas stay excluded until the monitor
+    // has seen them replay past it.
+    public void requireReplayLsn(long lsn) {
+        minReplayLsn.accumulateAndGet(lsn, Math::max);
+    }
+
+    public long getMinReplayLsn() {
+        return minReplayLsn.get();
+    }
+
+    // Current WAL insert position on the primary, as a byte offset
+    public long currentWalLsn() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')::bigint")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    public List<ReplicaDataSource> getReplicas() {
+        return replicas;
+    }
+
+    public JedisPool getJedisPool(String key) {
+        return jedisPools.get(shardRing.nodeFor(key));
+    }
+
+    public int getShardIndex(String key) {
+        return shardRing.nodeFor(key);
+    }
+
+    public List<JedisPool> getJedisPools() {
+        return jedisPools;
+    }
+
+    public HikariPoolMXBean getPoolMXBean() {
+        return dataSource.getHikariPoolMXBean();
     }
 
     public void close() {
+        if (replicaMonitor != null) {
+            replicaMonitor.shutdownNow();
+        }
+        replicas.forEach(ReplicaDataSource::close);
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
         }
-        if (jedisPool != null && !jedisPool.isClosed()) {
-            jedisPool.close();
+        if (jedisPools != null) {
+            for (JedisPool jedisPool : jedisPools) {
+                if (!jedisPool.isClosed()) {
+                    jedisPool.close();
+                }
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.tariff.connection;
+
+import redis.clients.jedis.util.Hashing;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Maps keys to node indexes; each node owns several virtual points on the ring so
+// keys spread evenly and adding a node only moves the keys that land on its points
+public class ConsistentHashRing {
+    private final long[] points;
+    private final int[] owners;
+    private final int nodeCount;
+
+    public ConsistentHashRing(List<String> nodeNames, int virtualNodes) {
+        if (nodeNames == null || nodeNames.isEmpty()) {
+            throw new IllegalArgumentException("at least one node is required");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtual nodes must be positive");
+        }
+
+        TreeMap<Long, Integer> ring = new TreeMap<>();
+        for (int node = 0; node < nodeNames.size(); node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                ring.putIfAbsent(Hashing.MURMUR_HASH.hash(nodeNames.get(node) + "#" + v), node);
+            }
+        }
+
+        this.points = new long[ring.size()];
+        this.owners = new int[ring.size()];
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : ring.entrySet()) {
+            points[i] = entry.getKey();
+            owners[i] = entry.getValue();
+            i++;
+        }
+        this.nodeCount = nodeNames.size();
+    }
+
+    public int nodeFor(String key) {
+        if (nodeCount == 1) {
+            return 0;
+        }
+        long hash = Hashing.MURMUR_HASH.hash(key);
+        int low = 0;
+        int high = points.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (points[mid] < hash) {
+                low = mid + 1;
+            } else if (points[mid] > hash) {
+                high = mid - 1;
+            } else {
+                return owners[mid];
+            }
+        }
+        return owners[low == points.length ? 0 : low];
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+}
@@ -0,0 +1,156 @@
+package com.tariff.connection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ReplicaDataSource {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaDataSource.class);
+
+    // Zero when the replica has replayed everything it received, otherwise time since the last replayed
+    // commit. "Everything it received" only means caught up while the WAL receiver is connected, so the
+    // receiver's state and the age of its last message from the primary come back too. The receiver row
+    // is missing when no receiver runs; status is NULL when the user lacks pg_read_all_stats. replay_lsn
+    // is how far the replica has replayed, as a byte offset comparable with the primary's WAL position.
+    private static final String LAG_QUERY = """
+        SELECT pg_is_in_recovery() AS in_recovery,
+            r.pid IS NOT NULL AS has_receiver,
+            r.status AS receiver_status,
+            EXTRACT(EPOCH FROM now() - r.last_msg_receipt_time) * 1000 AS receipt_age_ms,
+            EXTRACT(EPOCH FROM current_setting('wal_receiver_timeout')::interval) * 1000 AS receiver_timeout_ms,
+            CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+            END AS lag_ms,
+            pg_wal_lsn_diff(CASE WHEN pg_is_in_recovery() THEN pg_last_wal_replay_lsn()
+                                 ELSE pg_current_wal_lsn() END, '0/0')::bigint AS replay_lsn
+        FROM (SELECT 1) AS probe
+        LEFT JOIN pg_stat_wal_receiver r ON true
+    """;
+
+    private final String name;
+    private final HikariDataSource dataSource;
+    private final LongAdder routedConnections = new LongAdder();
+    private final LongAdder failedConnections = new LongAdder();
+    private volatile boolean healthy;
+    private volatile long lagMillis = Long.MAX_VALUE;
+    private volatile long replayLsn;
+    private volatile boolean receiverStatusHidden;
+
+    public ReplicaDataSource(String name, HikariDataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    public Connection getConnection() throws SQLException {
+        try {
+            Connection connection = dataSource.getConnection();
+            routedConnections.increment();
+            return connection;
+        } catch (SQLException e) {
+            failedConnections.increment();
+            markUnhealthy(e.getMessage());
+            throw e;
+        }
+    }
+
+    public void refresh() {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(LAG_QUERY)) {
+            if (rs.next()) {
+                // A promoted replica no longer follows the primary, so its reads can silently diverge
+                if (!rs.getBoolean("in_recovery")) {
+                    markUnhealthy("not in recovery");
+                    return;
+                }
+                String stalled = receiverProblem(rs);
+                if (stalled != null) {
+                    markUnhealthy(stalled);
+                    return;
+                }
+                lagMillis = rs.getLong("lag_ms");
+                replayLsn = rs.getLong("replay_lsn");
+                if (!healthy) {
+                    logger.info("Replica {} is healthy, lag={}ms", name, lagMillis);
+                }
+                healthy = true;
+            }
+        } catch (SQLException e) {
+            markUnhealthy(e.getMessage());
+        }
+    }
+
+    // Null when the WAL receiver is streaming and has heard from the primary within wal_receiver_timeout
+    private String receiverProblem(ResultSet rs) throws SQLException {
+        if (!rs.getBoolean("has_receiver")) {
+            return "no WAL receiver running";
+        }
+        String status = rs.getString("receiver_status");
+        if (status == null) {
+            if (!receiverStatusHidden) {
+                receiverStatusHidden = true;
+                logger.warn("Replica {}: WAL receiver status is hidden; grant pg_read_all_stats to check it", name);
+            }
+            return null;
+        }
+        if (!status.equals("streaming")) {
+            return "WAL receiver is " + status;
+        }
+        // A receiver that heard nothing for longer than its own timeout is about to give up
+        long receiptAge = rs.getLong("receipt_age_ms");
+        long timeout = rs.getLong("receiver_timeout_ms");
+        if (timeout > 0 && receiptAge > timeout) {
+            return "no message from primary for " + receiptAge + "ms";
+        }
+        return null;
+    }
+
+    public boolean isUsable(long maxLagMillis) {
+        return healthy && lagMillis <= maxLagMillis;
+    }
+
+    public boolean isUsable(long maxLagMillis, long minReplayLsn) {
+        return isUsable(maxLagMillis) && replayLsn >= minReplayLsn;
+    }
+
+    // Share of the pool in use or being waited for; 1.0 means every connection is busy
+    public double getLoad() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return Double.MAX_VALUE;
+        }
+        return (double) (pool.getActiveConnections() + pool.getThreadsAwaitingConnection())
+                / dataSource.getMaximumPoolSize();
+    }
+
+    public String getName() { return name; }
+    public boolean isHealthy() { return healthy; }
+    public long getLagMillis() { return lagMillis; }
+    public long getReplayLsn() { return replayLsn; }
+    public long getRoutedConnections() { return routedConnections.sum(); }
+    public long getFailedConnections() { return failedConnections.sum(); }
+    public HikariPoolMXBean getPoolMXBean() { return dataSource.getHikariPoolMXBean(); }
+
+    public void close() {
+        if (!dataSource.isClosed()) {
+            dataSource.close();
+        }
+    }
+
+    private void markUnhealthy(String reason) {
+        if (healthy) {
+            logger.warn("Replica {} marked unhealthy: {}", name, reason);
+        }
+        healthy = false;
+        lagMillis = Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,41 @@
+package com.tariff.enums;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public enum CacheNamespace {
+    BOM("bom", 1),
+    TARIFF("tariff", 1),
+    CALCULATED_TARIFF("calculatedTariff", 1),
+    COMPONENT_RATES("componentRates", 1);
+
+    private static final Map<String, CacheNamespace> BY_VALUE = new HashMap<>();
+
+    static {
+        for (CacheNamespace namespace : values()) {
+            BY_VALUE.put(namespace.value, namespace);
+        }
+    }
+
+    private final String value;
+    // Bump when the cached value's layout changes so old entries are never read back
+    private final int version;
+
+    CacheNamespace(String value, int version) {
+        this.value = value;
+        this.version = version;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    // Null for keys outside the known namespaces
+    public static CacheNamespace fromValue(String value) {
+        return BY_VALUE.get(value);
+    }
+}
@@ -0,0 +1,16 @@
+package com.tariff.enums;
+
+public enum RequestPriority {
+    INTERACTIVE("INTERACTIVE"),
+    BULK("BULK");
+
+    private final String value;
+
+    RequestPriority(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
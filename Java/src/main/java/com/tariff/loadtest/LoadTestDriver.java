@@ -0,0 +1,341 @@
+package com.tariff.loadtest;
+
+import com.tariff.cache.CacheManager;
+import com.tariff.config.DatabaseConfig;
+import com.tariff.config.LoadTestConfig;
+import com.tariff.connection.ConnectionPool;
+import com.tariff.connection.ReplicaDataSource;
+import com.tariff.enums.CacheNamespace;
+import com.tariff.enums.RequestPriority;
+import com.tariff.service.TariffService;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class LoadTestDriver {
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestDriver.class);
+
+    private final TariffService service;
+    private final DatabaseConfig dbConfig;
+    private final LoadTestConfig config;
+    private final List<String> countries;
+    private final double[] itemCdf;
+
+    public LoadTestDriver(TariffService service, DatabaseConfig dbConfig, LoadTestConfig config) {
+        this.service = service;
+        this.dbConfig = dbConfig;
+        this.config = config;
+        this.countries = SyntheticDataGenerator.countryCodes(config.getCountries());
+        this.itemCdf = zipfCdf(config.getItems(), config.getSkew());
+    }
+
+    public static void main(String[] args) throws Exception {
+        DatabaseConfig dbConfig = new DatabaseConfig();
+        TariffService service = new TariffService(dbConfig);
+        try {
+            service.initialize();
+            System.out.print(new LoadTestDriver(service, dbConfig, new LoadTestConfig()).run());
+        } finally {
+            service.close();
+        }
+    }
+
+    public String run() throws InterruptedException {
+        if (config.isFlushCache()) {
+            for (JedisPool pool : service.getConnectionPool().getJedisPools()) {
+                try (Jedis jedis = pool.getResource()) {
+                    jedis.flushDB();
+                }
+            }
+        }
+
+        if (config.getWarmupSeconds() > 0) {
+            logger.info("Warming up for {} s", config.getWarmupSeconds());
+            runPhase(config.getWarmupSeconds(), new LatencyHistogram(), new LongAdder());
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        PoolSampler sampler = new PoolSampler(service.getConnectionPool());
+        long[] hitsBefore = hitCounts(true);
+        long[] missesBefore = hitCounts(false);
+        long expiredBefore = service.getScheduler().getExpiredCount();
+        BulkLoad bulkLoad = config.getBulkBatchSize() > 0 ? new BulkLoad() : null;
+        if (bulkLoad != null) {
+            bulkLoad.start();
+        }
+
+        logger.info("Measuring for {} s in {} mode", config.getDurationSeconds(), config.getMode());
+        ScheduledExecutorService samplerExecutor = Executors.newSingleThreadScheduledExecutor();
+        samplerExecutor.scheduleAtFixedRate(sampler::sample, 0, 100, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        runPhase(config.getDurationSeconds(), histogram, errors);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        samplerExecutor.shutdownNow();
+        samplerExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        if (bulkLoad != null) {
+            bulkLoad.stop();
+        }
+
+        long[] hits = hitCounts(true);
+        long[] misses = hitCounts(false);
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] -= hitsBefore[i];
+            misses[i] -= missesBefore[i];
+        }
+        String report = report(histogram, errors.sum(), elapsedSeconds, hits, misses, sampler);
+        if (bulkLoad != null) {
+            report += String.format("bulk batches=%d failed=%d batch_size=%d expired_stages=%d%n",
+                    bulkLoad.batches.sum(), bulkLoad.failures.sum(), config.getBulkBatchSize(),
+                    service.getScheduler().getExpiredCount() - expiredBefore);
+        }
+        return report;
+    }
+
+    // Background batch job on the bulk lane, competing with the measured interactive traffic
+    private class BulkLoad {
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final Thread thread = new Thread(this::loop, "load-bulk");
+        private volatile boolean running = true;
+
+        void start() {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+        }
+
+        private void loop() {
+            SplittableRandom random = new SplittableRandom(config.getSeed() ^ 0x5DEECE66DL);
+            while (running) {
+                List<Map.Entry<String, String>> requests = new ArrayList<>();
+                for (int i = 0; i < config.getBulkBatchSize(); i++) {
+                    requests.add(Map.entry(SyntheticDataGenerator.itemId(random.nextInt(config.getItems())),
+                            countries.get(random.nextInt(countries.size()))));
+                }
+                try {
+                    service.batchGetEntityTariff(requests, service.bulkContext());
+                    batches.increment();
+                } catch (RuntimeException e) {
+                    failures.increment();
+                    logger.debug("Bulk batch failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void runPhase(int seconds, LatencyHistogram histogram, LongAdder errors) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        switch (config.getMode().toLowerCase()) {
+            case "closed":
+                runClosedLoop(end, histogram, errors);
+                break;
+            case "open":
+                runOpenLoop(end, histogram, errors);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown load mode: " + config.getMode());
+        }
+    }
+
+    // Fixed concurrency: each worker issues its next request as soon as the previous one returns
+    private void runClosedLoop(long end, LatencyHistogram histogram, LongAdder errors) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(config.getThreads());
+        SplittableRandom seeds = new SplittableRandom(config.getSeed());
+        for (int i = 0; i < config.getThreads(); i++) {
+            SplittableRandom random = seeds.split();
+            workers.execute(() -> {
+                while (System.nanoTime() < end) {
+                    long started = System.nanoTime();
+                    execute(random, errors);
+                    histogram.record((System.nanoTime() - started) / 1000);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    // Fixed arrival rate: latency is measured from the intended send time, so queueing
+    // behind a saturated service shows up instead of being hidden by coordinated omission
+    private void runOpenLoop(long end, LatencyHistogram histogram, LongAdder errors) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(config.getThreads());
+        SplittableRandom random = new SplittableRandom(config.getSeed());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, config.getRate());
+        long start = System.nanoTime();
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            SplittableRandom requestRandom = random.split();
+            workers.execute(() -> {
+                execute(requestRandom, errors);
+                histogram.record((System.nanoTime() - intended) / 1000);
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    private void execute(SplittableRandom random, LongAdder errors) {
+        String itemId = SyntheticDataGenerator.itemId(pickItem(random));
+        try {
+            if (config.getOperation().equalsIgnoreCase("multi")) {
+                service.calculateTotalTariffAcrossCountries(itemId, countries);
+            } else {
+                service.calculateTotalTariff(itemId, countries.get(random.nextInt(countries.size())));
+            }
+        } catch (Exception e) {
+            errors.increment();
+            logger.debug("Request failed for {}: {}", itemId, e.getMessage());
+        }
+    }
+
+    private int pickItem(SplittableRandom random) {
+        int index = Arrays.binarySearch(itemCdf, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, itemCdf.length - 1);
+    }
+
+    // Skew 0 is uniform; around 1 a small set of hot items dominates like a real catalog
+    private static double[] zipfCdf(int items, double skew) {
+        double[] cdf = new double[items];
+        double total = 0;
+        for (int i = 0; i < items; i++) {
+            total += 1.0 / Math.pow(i + 1, skew);
+            cdf[i] = total;
+        }
+        for (int i = 0; i < items; i++) {
+            cdf[i] /= total;
+        }
+        return cdf;
+    }
+
+    // Per-namespace hit (or miss) counters, with the total across namespaces in the last slot
+    private long[] hitCounts(boolean hits) {
+        CacheManager cacheManager = service.getCacheManager();
+        CacheNamespace[] namespaces = CacheNamespace.values();
+        long[] counts = new long[namespaces.length + 1];
+        for (CacheNamespace namespace : namespaces) {
+            counts[namespace.ordinal()] = hits ? cacheManager.getHitCount(namespace) : cacheManager.getMissCount(namespace);
+        }
+        counts[namespaces.length] = hits ? cacheManager.getHitCount() : cacheManager.getMissCount();
+        return counts;
+    }
+
+    private String report(LatencyHistogram histogram, long errors, double elapsedSeconds,
+                          long[] hits, long[] misses, PoolSampler sampler) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== Load test report ===\n");
+        sb.append(String.format("mode=%s operation=%s threads=%d%s duration=%.1fs%n",
+                config.getMode(), config.getOperation(), config.getThreads(),
+                config.getMode().equalsIgnoreCase("open") ? " target_rate=" + config.getRate() + "/s" : "",
+                elapsedSeconds));
+        sb.append(String.format("requests=%d errors=%d throughput=%.1f req/s%n",
+                histogram.getCount(), errors, histogram.getCount() / elapsedSeconds));
+        sb.append(String.format("latency_ms mean=%.3f p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f%n",
+                histogram.getMeanMicros() / 1000.0,
+                histogram.percentileMicros(0.50) / 1000.0,
+                histogram.percentileMicros(0.90) / 1000.0,
+                histogram.percentileMicros(0.99) / 1000.0,
+                histogram.percentileMicros(0.999) / 1000.0,
+                histogram.getMaxMicros() / 1000.0));
+        CacheNamespace[] namespaces = CacheNamespace.values();
+        sb.append(cacheLine("all", hits[namespaces.length], misses[namespaces.length]));
+        for (CacheNamespace namespace : namespaces) {
+            sb.append(cacheLine(namespace.getValue(), hits[namespace.ordinal()], misses[namespace.ordinal()]));
+        }
+        sb.append(String.format("db_pool max=%d active_mean=%.1f active_max=%d awaiting_mean=%.1f awaiting_max=%d saturated=%.1f%%%n",
+                dbConfig.getDbPoolMaxSize(), sampler.dbActive.mean(), sampler.dbActive.max,
+                sampler.dbAwaiting.mean(), sampler.dbAwaiting.max, sampler.dbSaturatedPercent()));
+        for (ReplicaDataSource replica : service.getConnectionPool().getReplicas()) {
+            sb.append(String.format("db_replica %s healthy=%s lag_ms=%s routed=%d failed=%d%n",
+                    replica.getName(), replica.isHealthy(),
+                    replica.isHealthy() ? String.valueOf(replica.getLagMillis()) : "n/a",
+                    replica.getRoutedConnections(), replica.getFailedConnections()));
+        }
+        sb.append(String.format("scheduler queued interactive=%d bulk=%d%n",
+                service.getScheduler().getQueueDepth(RequestPriority.INTERACTIVE),
+                service.getScheduler().getQueueDepth(RequestPriority.BULK)));
+        sb.append(String.format("redis_pool active_mean=%.1f active_max=%d waiters_mean=%.1f waiters_max=%d%n",
+                sampler.redisActive.mean(), sampler.redisActive.max,
+                sampler.redisWaiters.mean(), sampler.redisWaiters.max));
+        return sb.toString();
+    }
+
+    private static String cacheLine(String namespace, long hits, long misses) {
+        return String.format("cache %s hits=%d misses=%d hit_ratio=%.3f%n",
+                namespace, hits, misses, hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+    }
+
+    private static class PoolSampler {
+        private final HikariPoolMXBean dbPool;
+        private final List<JedisPool> redisPools;
+        private final Gauge dbActive = new Gauge();
+        private final Gauge dbAwaiting = new Gauge();
+        private final Gauge redisActive = new Gauge();
+        private final Gauge redisWaiters = new Gauge();
+        private long samples;
+        private long saturatedSamples;
+
+        PoolSampler(ConnectionPool connectionPool) {
+            this.dbPool = connectionPool.getPoolMXBean();
+            this.redisPools = connectionPool.getJedisPools();
+        }
+
+        synchronized void sample() {
+            int awaiting = dbPool.getThreadsAwaitingConnection();
+            dbActive.add(dbPool.getActiveConnections());
+            dbAwaiting.add(awaiting);
+            redisActive.add(redisPools.stream().mapToLong(JedisPool::getNumActive).sum());
+            redisWaiters.add(redisPools.stream().mapToLong(JedisPool::getNumWaiters).sum());
+            samples++;
+            if (awaiting > 0) {
+                saturatedSamples++;
+            }
+        }
+
+        synchronized double dbSaturatedPercent() {
+            return samples == 0 ? 0 : 100.0 * saturatedSamples / samples;
+        }
+    }
+
+    private static class Gauge {
+        private long sum;
+        private long count;
+        private long max;
+
+        void add(long value) {
+            sum += value;
+            count++;
+            max = Math.max(max, value);
+        }
+
+        double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+    }
+}
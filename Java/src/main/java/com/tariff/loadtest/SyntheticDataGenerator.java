@@ -0,0 +1,300 @@
+package com.tariff.loadtest;
+
+import com.tariff.config.DatabaseConfig;
+import com.tariff.config.GeneratorConfig;
+import com.tariff.enums.TariffCombinationPolicy;
+import com.tariff.schema.SchemaMigrator;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+public class SyntheticDataGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final int COPY_BATCH_ROWS = 50000;
+    private static final String[] MATERIAL_TYPES = {
+            "STEEL", "ALUMINIUM", "COPPER", "PLASTIC", "RUBBER", "GLASS", "COTTON", "LEATHER", "SILICON", "WOOD"
+    };
+
+    private final DatabaseConfig dbConfig;
+    private final GeneratorConfig config;
+    private final Random random;
+    private final LocalDate today = LocalDate.now();
+
+    public SyntheticDataGenerator(DatabaseConfig dbConfig, GeneratorConfig config) {
+        this.dbConfig = dbConfig;
+        this.config = config;
+        this.random = new Random(config.getSeed());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new SyntheticDataGenerator(new DatabaseConfig(), new GeneratorConfig()).generate();
+    }
+
+    public static String itemId(int index) {
+        return String.format("ITEM-%03d", index + 1);
+    }
+
+    public static String componentId(int index) {
+        return String.format("COMP-%05d", index + 1);
+    }
+
+    // CHN first so the demo lookup in TariffApplication always has data
+    public static List<String> countryCodes(int count) {
+        List<String> codes = new ArrayList<>();
+        codes.add("CHN");
+        for (String code : Locale.getISOCountries(Locale.IsoCountryCode.PART1_ALPHA3)) {
+            if (codes.size() >= count) {
+                break;
+            }
+            if (!code.equals("CHN")) {
+                codes.add(code);
+            }
+        }
+        return codes.subList(0, Math.min(count, codes.size()));
+    }
+
+    public void generate() throws SQLException, IOException {
+        String url = String.format("jdbc:postgresql://%s:%d/%s",
+                dbConfig.getDbHost(), dbConfig.getDbPort(), dbConfig.getDbName());
+
+        try (Connection conn = DriverManager.getConnection(url, dbConfig.getDbUser(), dbConfig.getDbPassword())) {
+            int applied = SchemaMigrator.migrate(conn);
+            logger.info("Schema at version {} ({} migrations applied)", SchemaMigrator.latestVersion(), applied);
+
+            conn.setAutoCommit(false);
+            CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+
+            try (Statement stmt = conn.createStatement()) {
+                // A bulk load is not a rate change; keep it out of the change feed
+                stmt.execute("SET LOCAL tariff.change_feed = 'off'");
+                if (config.isTruncate()) {
+                    stmt.execute("TRUNCATE TariffRule, Item_Component, Component, PolicyVersion, TariffChange");
+                } else if (hasRows(stmt, "Component")) {
+                    throw new IllegalStateException("Tables already hold data; set GEN_TRUNCATE=true to replace them");
+                }
+            }
+
+            long start = System.nanoTime();
+            List<String> countries = countryCodes(config.getCountries());
+            List<String> policyVersionIds = generatePolicyVersions(copyManager);
+            generateComponents(copyManager);
+            long bomRows = generateItemComponents(copyManager);
+            long ruleRows = generateTariffRules(copyManager, countries, policyVersionIds);
+            conn.commit();
+
+            // VACUUM sets the visibility map so the covering indexes can serve index-only scans
+            conn.setAutoCommit(true);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("VACUUM ANALYZE PolicyVersion, Component, Item_Component, TariffRule");
+            }
+
+            logger.info("Generated {} items, {} components, {} BOM rows, {} tariff rules, {} policy versions in {} ms",
+                    config.getItems(), config.getComponents(), bomRows, ruleRows, policyVersionIds.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private List<String> generatePolicyVersions(CopyManager copyManager) throws SQLException, IOException {
+        Map<TariffCombinationPolicy, Double> mix = parsePolicyMix(config.getPolicyMix());
+        List<String> ids = new ArrayList<>();
+
+        CopyBuffer buffer = new CopyBuffer(copyManager,
+                "COPY PolicyVersion (policy_version_id, tariff_combination_policy, start_date, end_date) FROM STDIN WITH (FORMAT csv)");
+        for (int i = 0; i < config.getPolicyVersions(); i++) {
+            String id = randomUuid().toString();
+            ids.add(id);
+            buffer.row(id, pickPolicy(mix).getValue(), today.minusYears(2).toString(), "");
+        }
+        buffer.flush();
+        return ids;
+    }
+
+    private void generateComponents(CopyManager copyManager) throws SQLException, IOException {
+        CopyBuffer buffer = new CopyBuffer(copyManager,
+                "COPY Component (component_id, description, material_type) FROM STDIN WITH (FORMAT csv)");
+        for (int i = 0; i < config.getComponents(); i++) {
+            String material = MATERIAL_TYPES[random.nextInt(MATERIAL_TYPES.length)];
+            buffer.row(componentId(i), "Synthetic " + material.toLowerCase() + " component " + (i + 1), material);
+        }
+        buffer.flush();
+    }
+
+    private long generateItemComponents(CopyManager copyManager) throws SQLException, IOException {
+        CopyBuffer buffer = new CopyBuffer(copyManager,
+                "COPY Item_Component (item_id, component_id) FROM STDIN WITH (FORMAT csv)");
+        int[] previousBom = new int[0];
+
+        for (int i = 0; i < config.getItems(); i++) {
+            // Colour and size variants reuse the BOM of the item before them
+            int[] bom = i > 0 && random.nextDouble() < config.getVariantShare() ? previousBom : randomBom();
+            for (int component : bom) {
+                buffer.row(itemId(i), componentId(component));
+            }
+            previousBom = bom;
+        }
+        buffer.flush();
+        return buffer.getTotalRows();
+    }
+
+    private long generateTariffRules(CopyManager copyManager, List<String> countries,
+                                     List<String> policyVersionIds) throws SQLException, IOException {
+        CopyBuffer buffer = new CopyBuffer(copyManager,
+                "COPY TariffRule (tariff_id, tariff_rate, level, entity_id, country_code, start_date, end_date, "
+                        + "status, policy_version_id) FROM STDIN WITH (FORMAT csv)");
+
+        for (int i = 0; i < config.getItems(); i++) {
+            addTariffRules(buffer, itemId(i), "ITEM", countries, policyVersionIds);
+        }
+        for (int i = 0; i < config.getComponents(); i++) {
+            addTariffRules(buffer, componentId(i), "COMPONENT", countries, policyVersionIds);
+        }
+        buffer.flush();
+        return buffer.getTotalRows();
+    }
+
+    private void addTariffRules(CopyBuffer buffer, String entityId, String level, List<String> countries,
+                                List<String> policyVersionIds) throws SQLException, IOException {
+        for (String country : countries) {
+            if (random.nextDouble() >= config.getTariffShare()) {
+                continue;
+            }
+            String policyVersionId = policyVersionIds.get(random.nextInt(policyVersionIds.size()));
+            buffer.row(randomUuid().toString(), randomRate(), level, entityId, country,
+                    today.minusDays(1 + random.nextInt(365)).toString(), "", "ACTIVE", policyVersionId);
+
+            // Superseded rules that the date and status filters must skip
+            if (random.nextDouble() < config.getHistoryShare()) {
+                buffer.row(randomUuid().toString(), randomRate(), level, entityId, country,
+                        today.minusYears(2).toString(), today.minusYears(1).toString(),
+                        random.nextBoolean() ? "ACTIVE" : "INACTIVE", policyVersionId);
+            }
+        }
+    }
+
+    private int[] randomBom() {
+        int size = bomSize();
+        int[] bom = random.ints(0, config.getComponents()).distinct().limit(size).toArray();
+        Arrays.sort(bom);
+        return bom;
+    }
+
+    private int bomSize() {
+        int min = config.getBomMin();
+        int max = Math.min(config.getBomMax(), config.getComponents());
+        switch (config.getBomDistribution().toLowerCase()) {
+            case "fixed":
+                return max;
+            case "uniform":
+                return min + random.nextInt(max - min + 1);
+            case "geometric":
+                // Most items have a handful of components, a long tail has many
+                double mean = Math.max(1.0, (max - min) / 4.0);
+                int extra = (int) Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - 1 / mean));
+                return Math.min(max, min + extra);
+            default:
+                throw new IllegalArgumentException("Unknown BOM distribution: " + config.getBomDistribution());
+        }
+    }
+
+    private String randomRate() {
+        return String.format(Locale.ROOT, "%.4f", random.nextInt(2500) / 10000.0);
+    }
+
+    private UUID randomUuid() {
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+
+    private TariffCombinationPolicy pickPolicy(Map<TariffCombinationPolicy, Double> mix) {
+        double total = mix.values().stream().mapToDouble(Double::doubleValue).sum();
+        double point = random.nextDouble() * total;
+        for (Map.Entry<TariffCombinationPolicy, Double> entry : mix.entrySet()) {
+            point -= entry.getValue();
+            if (point < 0) {
+                return entry.getKey();
+            }
+        }
+        return TariffCombinationPolicy.ADDITIVE;
+    }
+
+    private static boolean hasRows(Statement stmt, String table) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT EXISTS (SELECT 1 FROM " + table + ")")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    private static Map<TariffCombinationPolicy, Double> parsePolicyMix(String policyMix) {
+        Map<TariffCombinationPolicy, Double> mix = new LinkedHashMap<>();
+        for (String part : policyMix.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid policy mix entry: " + part);
+            }
+            mix.put(TariffCombinationPolicy.valueOf(pair[0].trim().toUpperCase()), Double.parseDouble(pair[1].trim()));
+        }
+        return mix;
+    }
+
+    // Accumulates CSV rows and streams them to COPY in fixed-size chunks
+    private static class CopyBuffer {
+        private final CopyManager copyManager;
+        private final String sql;
+        private final StringBuilder sb = new StringBuilder();
+        private int rows;
+        private long totalRows;
+
+        CopyBuffer(CopyManager copyManager, String sql) {
+            this.copyManager = copyManager;
+            this.sql = sql;
+        }
+
+        void row(String... values) throws SQLException, IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                // Empty unquoted fields load as NULL
+                if (!values[i].isEmpty()) {
+                    sb.append('"').append(values[i].replace("\"", "\"\"")).append('"');
+                }
+            }
+            sb.append('\n');
+            rows++;
+            totalRows++;
+            if (rows >= COPY_BATCH_ROWS) {
+                flush();
+            }
+        }
+
+        void flush() throws SQLException, IOException {
+            if (rows == 0) {
+                return;
+            }
+            copyManager.copyIn(sql, new StringReader(sb.toString()));
+            sb.setLength(0);
+            rows = 0;
+        }
+
+        long getTotalRows() {
+            return totalRows;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.tariff.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class ComponentRateAggregate {
+    private String bomFingerprint;
+    private String countryCode;
+    private BigDecimal componentTariffRate;
+    private List<String> componentsUsed;
+    private String policyVersionId;
+
+    // Constructors
+    public ComponentRateAggregate() {}
+
+    public ComponentRateAggregate(String bomFingerprint, String countryCode, BigDecimal componentTariffRate,
+                                  List<String> componentsUsed, String policyVersionId) {
+        this.bomFingerprint = bomFingerprint;
+        this.countryCode = countryCode;
+        this.componentTariffRate = componentTariffRate;
+        this.componentsUsed = componentsUsed;
+        this.policyVersionId = policyVersionId;
+    }
+
+    // Getters and Setters
+    public String getBomFingerprint() { return bomFingerprint; }
+    public void setBomFingerprint(String bomFingerprint) { this.bomFingerprint = bomFingerprint; }
+
+    public String getCountryCode() { return countryCode; }
+    public void setCountryCode(String countryCode) { this.countryCode = countryCode; }
+
+    public BigDecimal getComponentTariffRate() { return componentTariffRate; }
+    public void setComponentTariffRate(BigDecimal componentTariffRate) { this.componentTariffRate = componentTariffRate; }
+
+    public List<String> getComponentsUsed() { return componentsUsed; }
+    public void setComponentsUsed(List<String> componentsUsed) { this.componentsUsed = componentsUsed; }
+
+    // Policy version of the first component with a tariff, used when the item has no tariff of its own
+    public String getPolicyVersionId() { return policyVersionId; }
+    public void setPolicyVersionId(String policyVersionId) { this.policyVersionId = policyVersionId; }
+}
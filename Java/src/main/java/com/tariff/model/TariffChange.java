@@ -0,0 +1,62 @@
+package com.tariff.model;
+
+import java.time.OffsetDateTime;
+
+// One row of the TariffChange feed table; which fields are set depends on the source table
+public class TariffChange {
+    private long changeId;
+    private String source;
+    private String entityId;
+    private String componentId;
+    private String countryCode;
+    private String policyVersionId;
+    private OffsetDateTime changedAt;
+
+    // Constructors
+    public TariffChange() {}
+
+    public TariffChange(long changeId, String source, String entityId, String componentId,
+                        String countryCode, String policyVersionId, OffsetDateTime changedAt) {
+        this.changeId = changeId;
+        this.source = source;
+        this.entityId = entityId;
+        this.componentId = componentId;
+        this.countryCode = countryCode;
+        this.policyVersionId = policyVersionId;
+        this.changedAt = changedAt;
+    }
+
+    // Getters and Setters
+    public long getChangeId() { return changeId; }
+    public void setChangeId(long changeId) { this.changeId = changeId; }
+
+    public String getSource() { return source; }
+    public void setSource(String source) { this.source = source; }
+
+    public String getEntityId() { return entityId; }
+    public void setEntityId(String entityId) { this.entityId = entityId; }
+
+    public String getComponentId() { return componentId; }
+    public void setComponentId(String componentId) { this.componentId = componentId; }
+
+    public String getCountryCode() { return countryCode; }
+    public void setCountryCode(String countryCode) { this.countryCode = countryCode; }
+
+    public String getPolicyVersionId() { return policyVersionId; }
+    public void setPolicyVersionId(String policyVersionId) { this.policyVersionId = policyVersionId; }
+
+    public OffsetDateTime getChangedAt() { return changedAt; }
+    public void setChangedAt(OffsetDateTime changedAt) { this.changedAt = changedAt; }
+
+    @Override
+    public String toString() {
+        return "TariffChange{" +
+                "changeId=" + changeId +
+                ", source='" + source + '\'' +
+                ", entityId='" + entityId + '\'' +
+                ", componentId='" + componentId + '\'' +
+                ", countryCode='" + countryCode + '\'' +
+                ", policyVersionId='" + policyVersionId + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,241 @@
+package com.tariff.repository;
+
+import com.tariff.connection.ConnectionPool;
+import com.tariff.model.TariffChange;
+import com.tariff.tracing.DbQueryEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+// Reads and acknowledges the TariffChange feed written by the V3 triggers. Always runs on the
+// primary: the feed is consumed right after commit, before replicas necessarily have it.
+public class TariffChangeRepository {
+    private static final Logger logger = LoggerFactory.getLogger(TariffChangeRepository.class);
+    // Rows per cursor round trip while streaming affected items
+    private static final int AFFECTED_ITEMS_FETCH_SIZE = 1000;
+
+    public static final String PENDING_CHANGES_QUERY = """
+        SELECT change_id, source, entity_id, component_id, country_code,
+               policy_version_id::text AS policy_version_id, changed_at
+        FROM TariffChange
+        ORDER BY change_id
+        LIMIT ?
+    """;
+
+    // (item, country) pairs whose CombinedTariff depends on the changed rows:
+    //   rule or policy change -> the entity itself when it is an item, plus every item containing it
+    //   BOM change            -> the item, in each country where the added or removed component has a rule,
+    //                            and once with no country so its cached BOM is refreshed too
+    // Ordered by item so the rows of one item arrive together and can be streamed in chunks.
+    public static final String AFFECTED_ITEMS_QUERY = """
+        WITH rule_changes AS (
+            SELECT r.entity_id, r.country_code
+            FROM unnest(?::varchar[], ?::varchar[]) AS r(entity_id, country_code)
+            UNION
+            SELECT t.entity_id, t.country_code
+            FROM TariffRule t
+            WHERE t.policy_version_id = ANY(?::uuid[])
+        ),
+        bom_changes AS (
+            SELECT b.item_id, b.component_id
+            FROM unnest(?::varchar[], ?::varchar[]) AS b(item_id, component_id)
+        )
+        SELECT ic.item_id, r.country_code
+        FROM rule_changes r
+        INNER JOIN Item_Component ic ON ic.component_id = r.entity_id
+        UNION
+        SELECT r.entity_id, r.country_code
+        FROM rule_changes r
+        WHERE NOT EXISTS (SELECT 1 FROM Component c WHERE c.component_id = r.entity_id)
+        UNION
+        SELECT b.item_id, t.country_code
+        FROM bom_changes b
+        INNER JOIN TariffRule t ON t.entity_id = b.component_id AND t.status = 'ACTIVE'
+        UNION
+        SELECT b.item_id, NULL
+        FROM bom_changes b
+        ORDER BY item_id
+    """;
+
+    // By id rather than by range: a lower change_id may commit after a higher one was consumed
+    public static final String DELETE_CHANGES_QUERY = """
+        DELETE FROM TariffChange
+        WHERE change_id = ANY(?)
+    """;
+
+    private final ConnectionPool connectionPool;
+
+    public TariffChangeRepository(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    public List<TariffChange> fetchPending(int limit) throws SQLException {
+        List<TariffChange> changes = new ArrayList<>();
+
+        DbQueryEvent event = new DbQueryEvent();
+        event.begin();
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(PENDING_CHANGES_QUERY)) {
+
+            stmt.setInt(1, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    changes.add(new TariffChange(
+                            rs.getLong("change_id"),
+                            rs.getString("source"),
+                            rs.getString("entity_id"),
+                            rs.getString("component_id"),
+                            rs.getString("country_code"),
+                            rs.getString("policy_version_id"),
+                            rs.getObject("changed_at", OffsetDateTime.class)
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Database error in fetchPending: {}", e.getMessage());
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.query = "fetchPendingChanges";
+                event.rowCount = changes.size();
+                event.commit();
+            }
+        }
+
+        return changes;
+    }
+
+    // Streams the affected items to the consumer in chunks of at most maxItems items, so a change that
+    // fans out widely (a policy version behind many rules, a component in many BOMs) is never held in
+    // memory at once. The cursor stays open while the consumer works. Stops at the first chunk the
+    // consumer reports as not written and returns false.
+    public boolean resolveAffectedItems(List<TariffChange> changes, int maxItems, AffectedItemsConsumer consumer)
+            throws SQLException {
+        List<String> ruleEntities = new ArrayList<>();
+        List<String> ruleCountries = new ArrayList<>();
+        List<UUID> policyVersionIds = new ArrayList<>();
+        List<String> bomItems = new ArrayList<>();
+        List<String> bomComponents = new ArrayList<>();
+
+        for (TariffChange change : changes) {
+            switch (change.getSource()) {
+                case "TariffRule" -> {
+                    ruleEntities.add(change.getEntityId());
+                    ruleCountries.add(change.getCountryCode());
+                }
+                case "PolicyVersion" -> policyVersionIds.add(UUID.fromString(change.getPolicyVersionId()));
+                case "Item_Component" -> {
+                    bomItems.add(change.getEntityId());
+                    bomComponents.add(change.getComponentId());
+                }
+                default -> logger.warn("Ignoring change {} from unknown source {}", change.getChangeId(), change.getSource());
+            }
+        }
+
+        DbQueryEvent event = new DbQueryEvent();
+        event.begin();
+        int rowCount = 0;
+        int itemCount = 0;
+        boolean written = true;
+        try (Connection conn = connectionPool.getConnection()) {
+            // pgjdbc only fetches through a cursor inside a transaction
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(AFFECTED_ITEMS_QUERY)) {
+                stmt.setFetchSize(AFFECTED_ITEMS_FETCH_SIZE);
+                stmt.setArray(1, conn.createArrayOf("varchar", ruleEntities.toArray()));
+                stmt.setArray(2, conn.createArrayOf("varchar", ruleCountries.toArray()));
+                stmt.setArray(3, conn.createArrayOf("uuid", policyVersionIds.toArray()));
+                stmt.setArray(4, conn.createArrayOf("varchar", bomItems.toArray()));
+                stmt.setArray(5, conn.createArrayOf("varchar", bomComponents.toArray()));
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    Map<String, Set<String>> chunk = new LinkedHashMap<>();
+                    while (rs.next()) {
+                        rowCount++;
+                        String itemId = rs.getString(1);
+                        if (!chunk.containsKey(itemId) && chunk.size() == maxItems) {
+                            itemCount += chunk.size();
+                            written = consumer.accept(chunk);
+                            if (!written) {
+                                break;
+                            }
+                            chunk = new LinkedHashMap<>();
+                        }
+                        Set<String> countries = chunk.computeIfAbsent(itemId, k -> new TreeSet<>());
+                        String country = rs.getString(2);
+                        if (country != null) {
+                            countries.add(country);
+                        }
+                    }
+                    if (written && !chunk.isEmpty()) {
+                        itemCount += chunk.size();
+                        written = consumer.accept(chunk);
+                    }
+                }
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Database error in resolveAffectedItems for {} changes: {}", changes.size(), e.getMessage());
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.query = "resolveAffectedItems";
+                event.entityCount = changes.size();
+                event.rowCount = rowCount;
+                event.commit();
+            }
+        }
+
+        logger.debug("{} changes affect {} items", changes.size(), itemCount);
+        return written;
+    }
+
+    public int deleteChanges(List<TariffChange> changes) throws SQLException {
+        Long[] ids = new Long[changes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = changes.get(i).getChangeId();
+        }
+
+        DbQueryEvent event = new DbQueryEvent();
+        event.begin();
+        int rowCount = 0;
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(DELETE_CHANGES_QUERY)) {
+
+            stmt.setArray(1, conn.createArrayOf("int8", ids));
+            rowCount = stmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Database error in deleteChanges for {} changes: {}", ids.length, e.getMessage());
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.query = "deleteChanges";
+                event.entityCount = ids.length;
+                event.rowCount = rowCount;
+                event.commit();
+            }
+        }
+
+        return rowCount;
+    }
+
+    @FunctionalInterface
+    public interface AffectedItemsConsumer {
+        // Countries by item id, for at most the requested number of items; false if the refresh failed
+        boolean accept(Map<String, Set<String>> countriesByItem) throws SQLException;
+    }
+}
@@ -4,22 +4,108 @@ import com.tariff.model.Component;
 import com.tariff.model.TariffRate;
 import com.tariff.enums.TariffCombinationPolicy;
 import com.tariff.connection.ConnectionPool;
+import com.tariff.tracing.DbQueryEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 public class TariffRepository {
     private static final Logger logger = LoggerFactory.getLogger(TariffRepository.class);
+
+    public static final String RESOLVE_BOM_QUERY = """
+        SELECT c.component_id, c.description, c.material_type
+        FROM Component c
+        INNER JOIN Item_Component ic ON c.component_id = ic.component_id
+        WHERE ic.item_id = ?
+        ORDER BY c.component_id
+    """;
+
+    // Same as RESOLVE_BOM_QUERY for a batch of items
+    public static final String RESOLVE_BOMS_QUERY = """
+        SELECT ic.item_id, c.component_id, c.description, c.material_type
+        FROM Component c
+        INNER JOIN Item_Component ic ON c.component_id = ic.component_id
+        WHERE ic.item_id = ANY(?)
+        ORDER BY ic.item_id, c.component_id
+    """;
+
+    public static final String ENTITY_TARIFF_QUERY = """
+        SELECT
+            t.tariff_id::text,
+            t.tariff_rate,
+            t.level,
+            t.entity_id,
+            t.country_code,
+            t.start_date,
+            t.end_date,
+            t.status,
+            t.policy_version_id
+        FROM TariffRule t
+        INNER JOIN PolicyVersion p ON t.policy_version_id = p.policy_version_id
+        WHERE t.entity_id = ?
+            AND t.country_code = ?
+            AND t.status = 'ACTIVE'
+            AND t.start_date <= CURRENT_DATE
+            AND (t.end_date IS NULL OR t.end_date >= CURRENT_DATE)
+            AND p.start_date <= CURRENT_DATE
+            AND (p.end_date IS NULL OR p.end_date >= CURRENT_DATE)
+        ORDER BY t.level, t.start_date DESC
+        LIMIT 1
+    """;
+
+    // Same selection as getEntityTariff, one winning rule per (entity, country)
+    public static final String ENTITY_TARIFFS_QUERY = """
+        SELECT DISTINCT ON (t.entity_id, t.country_code)
+            t.tariff_id::text,
+            t.tariff_rate,
+            t.level,
+            t.entity_id,
+            t.country_code,
+            t.start_date,
+            t.end_date,
+            t.status,
+            t.policy_version_id
+        FROM TariffRule t
+        INNER JOIN PolicyVersion p ON t.policy_version_id = p.policy_version_id
+        WHERE t.entity_id = ANY(?)
+            AND t.country_code = ANY(?)
+            AND t.status = 'ACTIVE'
+            AND t.start_date <= CURRENT_DATE
+            AND (t.end_date IS NULL OR t.end_date >= CURRENT_DATE)
+            AND p.start_date <= CURRENT_DATE
+            AND (p.end_date IS NULL OR p.end_date >= CURRENT_DATE)
+        ORDER BY t.entity_id, t.country_code, t.level, t.start_date DESC
+    """;
+
+    public static final String COMBINATION_POLICY_QUERY = """
+        SELECT tariff_combination_policy
+        FROM policyversion pv
+        WHERE pv.policy_version_id = ?
+            AND pv.start_date <= CURRENT_TIMESTAMP
+            AND (pv.end_date IS NULL OR pv.end_date > CURRENT_TIMESTAMP)
+        LIMIT 1
+    """;
+
     private final ConnectionPool connectionPool;
+    private final boolean readFromPrimary;
 
     public TariffRepository(ConnectionPool connectionPool) {
+        this(connectionPool, false);
+    }
+
+    // readFromPrimary bypasses replica routing, for callers that must see their own commits
+    public TariffRepository(ConnectionPool connectionPool, boolean readFromPrimary) {
         this.connectionPool = connectionPool;
+        this.readFromPrimary = readFromPrimary;
     }
 
     public List<Component> resolveBom(String itemId) throws SQLException {
@@ -27,18 +113,12 @@ public class TariffRepository {
             throw new IllegalArgumentException("item_id cannot be empty");
         }
 
-        String query = """
-            SELECT c.component_id, c.description, c.material_type
-            FROM Component c
-            INNER JOIN Item_Component ic ON c.component_id = ic.component_id
-            WHERE ic.item_id = ?
-            ORDER BY c.component_id
-        """;
-
         List<Component> components = new ArrayList<>();
 
-        try (Connection conn = connectionPool.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        DbQueryEvent event = new DbQueryEvent();
+        event.begin();
+        try (Connection conn = openConnection();
+             PreparedStatement stmt = conn.prepareStatement(RESOLVE_BOM_QUERY)) {
 
             stmt.setString(1, itemId);
 
@@ -55,12 +135,73 @@ public class TariffRepository {
         } catch (SQLException e) {
             logger.error("Database error in resolveBom for item {}: {}", itemId, e.getMessage());
             throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.query = "resolveBom";
+                event.entityId = itemId;
+                event.entityCount = 1;
+                event.rowCount = components.size();
+                event.commit();
+            }
         }
 
-        logger.info("Resolved BOM for item {}: {} components", itemId, components.size());
+        logger.debug("Resolved BOM for item {}: {} components", itemId, components.size());
         return components;
     }
 
+    public Map<String, List<Component>> resolveBoms(Collection<String> itemIds) throws SQLException {
+        if (itemIds == null || itemIds.isEmpty()) {
+            throw new IllegalArgumentException("item_ids cannot be empty");
+        }
+
+        String[] itemArray = new String[itemIds.size()];
+        int i = 0;
+        for (String itemId : itemIds) {
+            if (itemId == null || itemId.trim().isEmpty()) {
+                throw new IllegalArgumentException("item_id cannot be empty");
+            }
+            itemArray[i++] = itemId;
+        }
+
+        Map<String, List<Component>> boms = new HashMap<>();
+
+        DbQueryEvent event = new DbQueryEvent();
+        event.begin();
+        int rowCount = 0;
+        try (Connection conn = openConnection();
+             PreparedStatement stmt = conn.prepareStatement(RESOLVE_BOMS_QUERY)) {
+
+            stmt.setArray(1, conn.createArrayOf("varchar", itemArray));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Component component = new Component(
+                            rs.getString("component_id"),
+                            rs.getString("description"),
+                            rs.getString("material_type")
+                    );
+                    rowCount++;
+                    boms.computeIfAbsent(rs.getString("item_id"), k -> new ArrayList<>()).add(component);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Database error in resolveBoms for {} items: {}", itemArray.length, e.getMessage());
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.query = "resolveBoms";
+                event.entityCount = itemArray.length;
+                event.rowCount = rowCount;
+                event.commit();
+            }
+        }
+
+        logger.debug("Resolved BOMs for {} of {} items", boms.size(), itemArray.length);
+        return boms;
+    }
+
     public Optional<TariffRate> getEntityTariff(String entityId, String country) throws SQLException {
         if (entityId == null || entityId.trim().isEmpty()) {
             throw new IllegalArgumentException("entity_id cannot be empty");
@@ -71,38 +212,18 @@ public class TariffRepository {
 
         country = country.toUpperCase();
 
-        String query = """
-            SELECT
-                t.tariff_id::text,
-                t.tariff_rate,
-                t.level,
-                t.entity_id,
-                t.country_code,
-                t.start_date,
-                t.end_date,
-                t.status,
-                t.policy_version_id
-            FROM TariffRule t
-            INNER JOIN PolicyVersion p ON t.policy_version_id = p.policy_version_id
-            WHERE t.entity_id = ?
-                AND t.country_code = ?
-                AND t.status = 'ACTIVE'
-                AND t.start_date <= CURRENT_DATE
-                AND (t.end_date IS NULL OR t.end_date >= CURRENT_DATE)
-                AND p.start_date <= CURRENT_DATE
-                AND (p.end_date IS NULL OR p.end_date >= CURRENT_DATE)
-            ORDER BY t.level, t.start_date DESC
-            LIMIT 1
-        """;
-
-        try (Connection conn = connectionPool.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        DbQueryEvent event = new DbQueryEvent();
+        event.begin();
+        int rowCount = 0;
+        try (Connection conn = openConnection();
+             PreparedStatement stmt = conn.prepareStatement(ENTITY_TARIFF_QUERY)) {
 
             stmt.setString(1, entityId);
             stmt.setString(2, country);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
+                    rowCount = 1;
                     TariffRate tariff = new TariffRate(
                             rs.getString("tariff_id"),
                             rs.getDouble("tariff_rate"),
@@ -115,7 +236,7 @@ public class TariffRepository {
                             rs.getString("policy_version_id")
                     );
 
-                    logger.info("Retrieved tariff for entity {} in {}", entityId, country);
+                    logger.debug("Retrieved tariff for entity {} in {}", entityId, country);
                     return Optional.of(tariff);
                 }
             }
@@ -123,11 +244,95 @@ public class TariffRepository {
             logger.error("Database error in getEntityTariff for entity {}, country {}: {}",
                     entityId, country, e.getMessage());
             throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.query = "getEntityTariff";
+                event.entityId = entityId;
+                event.countryCode = country;
+                event.entityCount = 1;
+                event.rowCount = rowCount;
+                event.commit();
+            }
         }
 
         return Optional.empty();
     }
 
+    public Map<String, Map<String, TariffRate>> getEntityTariffs(Collection<String> entityIds,
+                                                                Collection<String> countries) throws SQLException {
+        if (entityIds == null || entityIds.isEmpty()) {
+            throw new IllegalArgumentException("entity_ids cannot be empty");
+        }
+        if (countries == null || countries.isEmpty()) {
+            throw new IllegalArgumentException("countries cannot be empty");
+        }
+
+        String[] entityArray = new String[entityIds.size()];
+        int i = 0;
+        for (String entityId : entityIds) {
+            if (entityId == null || entityId.trim().isEmpty()) {
+                throw new IllegalArgumentException("entity_id cannot be empty");
+            }
+            entityArray[i++] = entityId;
+        }
+
+        String[] countryArray = new String[countries.size()];
+        i = 0;
+        for (String country : countries) {
+            if (country == null || country.trim().isEmpty() || country.length() != 3) {
+                throw new IllegalArgumentException("country must be a valid 3-character country code");
+            }
+            countryArray[i++] = country.toUpperCase();
+        }
+
+        Map<String, Map<String, TariffRate>> tariffs = new HashMap<>();
+
+        DbQueryEvent event = new DbQueryEvent();
+        event.begin();
+        int rowCount = 0;
+        try (Connection conn = openConnection();
+             PreparedStatement stmt = conn.prepareStatement(ENTITY_TARIFFS_QUERY)) {
+
+            stmt.setArray(1, conn.createArrayOf("varchar", entityArray));
+            stmt.setArray(2, conn.createArrayOf("varchar", countryArray));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    TariffRate tariff = new TariffRate(
+                            rs.getString("tariff_id"),
+                            rs.getDouble("tariff_rate"),
+                            rs.getString("level"),
+                            rs.getString("entity_id"),
+                            rs.getString("country_code"),
+                            rs.getObject("start_date", LocalDate.class),
+                            rs.getObject("end_date", LocalDate.class),
+                            rs.getString("status"),
+                            rs.getString("policy_version_id")
+                    );
+                    rowCount++;
+                    tariffs.computeIfAbsent(tariff.getEntityId(), k -> new HashMap<>())
+                            .put(tariff.getCountryCode(), tariff);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Database error in getEntityTariffs for {} entities, {} countries: {}",
+                    entityArray.length, countryArray.length, e.getMessage());
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.query = "getEntityTariffs";
+                event.entityCount = entityArray.length;
+                event.rowCount = rowCount;
+                event.commit();
+            }
+        }
+
+        logger.debug("Retrieved tariffs for {} entities across {} countries", tariffs.size(), countryArray.length);
+        return tariffs;
+    }
+
     public TariffCombinationPolicy getCombinationPolicy(String policyVersionId) throws SQLException {
         if (policyVersionId == null || policyVersionId.trim().isEmpty()) {
             throw new IllegalArgumentException("policy_version_id cannot be empty");
@@ -140,22 +345,17 @@ public class TariffRepository {
             throw new IllegalArgumentException("policy_version_id is not a valid uuid");
         }
 
-        String query = """
-            SELECT tariff_combination_policy
-            FROM policyversion pv
-            WHERE pv.policy_version_id = ?
-                AND pv.start_date <= CURRENT_TIMESTAMP
-                AND (pv.end_date IS NULL OR pv.end_date > CURRENT_TIMESTAMP)
-            LIMIT 1
-        """;
-
-        try (Connection conn = connectionPool.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        DbQueryEvent event = new DbQueryEvent();
+        event.begin();
+        int rowCount = 0;
+        try (Connection conn = openConnection();
+             PreparedStatement stmt = conn.prepareStatement(COMBINATION_POLICY_QUERY)) {
 
             stmt.setObject(1, uuid_policyVersionId);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
+                    rowCount = 1;
                     String policyStr = rs.getString("tariff_combination_policy").toLowerCase();
 
                     if (policyStr.contains("additive")) {
@@ -175,9 +375,22 @@ public class TariffRepository {
             logger.error("Database error in getCombinationPolicy for policy version {}: {}",
                     policyVersionId, e.getMessage());
             throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.query = "getCombinationPolicy";
+                event.entityId = policyVersionId;
+                event.entityCount = 1;
+                event.rowCount = rowCount;
+                event.commit();
+            }
         }
 
         logger.info("Using default ADDITIVE policy for policy_version_id: {}", policyVersionId);
         return TariffCombinationPolicy.ADDITIVE;
     }
+
+    private Connection openConnection() throws SQLException {
+        return readFromPrimary ? connectionPool.getConnection() : connectionPool.getReadConnection();
+    }
 }
\ No newline at end of file
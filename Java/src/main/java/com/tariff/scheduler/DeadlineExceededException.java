@@ -0,0 +1,9 @@
+package com.tariff.scheduler;
+
+import java.util.concurrent.CancellationException;
+
+public class DeadlineExceededException extends CancellationException {
+    public DeadlineExceededException(String stage) {
+        super("Deadline exceeded before stage: " + stage);
+    }
+}
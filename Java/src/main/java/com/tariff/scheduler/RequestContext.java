@@ -0,0 +1,85 @@
+package com.tariff.scheduler;
+
+import com.tariff.enums.RequestPriority;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Lane and deadline of one caller request, shared by every stage it fans out to
+public class RequestContext {
+    private final RequestPriority priority;
+    private final long deadlineNanos;
+    // Stages still running; each removes itself on completion
+    private final Set<CompletableFuture<?>> children = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    public RequestContext(RequestPriority priority, Duration timeout) {
+        this.priority = priority;
+        this.deadlineNanos = System.nanoTime() + timeout.toNanos();
+    }
+
+    public static RequestContext interactive(Duration timeout) {
+        return new RequestContext(RequestPriority.INTERACTIVE, timeout);
+    }
+
+    public static RequestContext bulk(Duration timeout) {
+        return new RequestContext(RequestPriority.BULK, timeout);
+    }
+
+    public RequestPriority getPriority() {
+        return priority;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    public boolean isExpired() {
+        return cancelled || remainingNanos() <= 0;
+    }
+
+    public void checkDeadline(String stage) {
+        if (isExpired()) {
+            throw new DeadlineExceededException(stage);
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        for (CompletableFuture<?> child : children) {
+            child.cancel(false);
+        }
+    }
+
+    public <T> T await(CompletableFuture<T> future, String stage) throws Exception {
+        try {
+            return future.get(Math.max(0, remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            cancel();
+            throw new DeadlineExceededException(stage);
+        } catch (ExecutionException | CompletionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    void track(CompletableFuture<?> future) {
+        children.add(future);
+        future.whenComplete((result, error) -> children.remove(future));
+        if (cancelled) {
+            future.cancel(false);
+        }
+    }
+}
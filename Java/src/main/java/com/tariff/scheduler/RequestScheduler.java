@@ -0,0 +1,111 @@
+package com.tariff.scheduler;
+
+import com.tariff.enums.RequestPriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Separate worker lanes for interactive and bulk work; each lane runs earliest deadline
+// first, and stages whose deadline has already passed are dropped before they start
+public class RequestScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(RequestScheduler.class);
+
+    private final ThreadPoolExecutor interactiveExecutor;
+    private final ThreadPoolExecutor bulkExecutor;
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder expired = new LongAdder();
+
+    public RequestScheduler(int interactiveThreads, int bulkThreads) {
+        this.interactiveExecutor = newLane("interactive", interactiveThreads);
+        this.bulkExecutor = newLane("bulk", bulkThreads);
+    }
+
+    public <T> CompletableFuture<T> submit(RequestContext context, String stage, Callable<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        context.track(future);
+        ThreadPoolExecutor executor = context.getPriority() == RequestPriority.INTERACTIVE
+                ? interactiveExecutor : bulkExecutor;
+        try {
+            executor.execute(new StageTask<>(context, stage, work, future, sequence.getAndIncrement()));
+        } catch (RejectedExecutionException e) {
+            // Only after close(); fail the stage rather than leave its future pending forever
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    public int getQueueDepth(RequestPriority priority) {
+        return (priority == RequestPriority.INTERACTIVE ? interactiveExecutor : bulkExecutor).getQueue().size();
+    }
+
+    public void close() {
+        interactiveExecutor.shutdown();
+        bulkExecutor.shutdown();
+    }
+
+    private static ThreadPoolExecutor newLane(String name, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "tariff-" + name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), threadFactory);
+    }
+
+    private class StageTask<T> implements Runnable, Comparable<StageTask<?>> {
+        private final RequestContext context;
+        private final String stage;
+        private final Callable<T> work;
+        private final CompletableFuture<T> future;
+        private final long seq;
+
+        StageTask(RequestContext context, String stage, Callable<T> work, CompletableFuture<T> future, long seq) {
+            this.context = context;
+            this.stage = stage;
+            this.work = work;
+            this.future = future;
+            this.seq = seq;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            if (context.isExpired()) {
+                expired.increment();
+                logger.debug("Dropping expired {} stage {}", context.getPriority().getValue(), stage);
+                future.completeExceptionally(new DeadlineExceededException(stage));
+                return;
+            }
+            try {
+                future.complete(work.call());
+            } catch (Throwable e) {
+                // Errors too, or the awaiting caller would only see its deadline pass
+                future.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public int compareTo(StageTask<?> other) {
+            int byDeadline = Long.compare(context.getDeadlineNanos() - other.context.getDeadlineNanos(), 0);
+            return byDeadline != 0 ? byDeadline : Long.compare(seq, other.seq);
+        }
+    }
+}
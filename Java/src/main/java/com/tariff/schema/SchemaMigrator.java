@@ -0,0 +1,105 @@
+package com.tariff.schema;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Applies the versioned scripts under db/migration in order, recording each in schema_version
+public class SchemaMigrator {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private static final String[] MIGRATIONS = {
+            "V1__schema.sql",
+            "V2__lookup_indexes.sql",
+            "V3__change_feed.sql"
+    };
+    // Arbitrary constant so concurrent migrators serialize on the same advisory lock
+    private static final long MIGRATION_LOCK_ID = 0x7461726966L;
+
+    private SchemaMigrator() {}
+
+    public static int migrate(Connection conn) throws SQLException, IOException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        int applied = 0;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SELECT pg_advisory_xact_lock(" + MIGRATION_LOCK_ID + ")");
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_version (
+                    version INT PRIMARY KEY,
+                    script VARCHAR(200) NOT NULL,
+                    applied_at TIMESTAMPTZ NOT NULL DEFAULT now()
+                )
+            """);
+
+            int current = 0;
+            try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+                if (rs.next()) {
+                    current = rs.getInt(1);
+                }
+            }
+
+            for (String script : MIGRATIONS) {
+                int version = versionOf(script);
+                if (version <= current) {
+                    continue;
+                }
+                stmt.execute(readScript(script));
+                try (PreparedStatement insert = conn.prepareStatement(
+                        "INSERT INTO schema_version (version, script) VALUES (?, ?)")) {
+                    insert.setInt(1, version);
+                    insert.setString(2, script);
+                    insert.executeUpdate();
+                }
+                logger.info("Applied schema migration {}", script);
+                applied++;
+            }
+            conn.commit();
+        } catch (SQLException | IOException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return applied;
+    }
+
+    // 0 for a database the migrator has never run against
+    public static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT to_regclass('schema_version') IS NOT NULL")) {
+                if (!rs.next() || !rs.getBoolean(1)) {
+                    return 0;
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    public static int latestVersion() {
+        return versionOf(MIGRATIONS[MIGRATIONS.length - 1]);
+    }
+
+    private static int versionOf(String script) {
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    private static String readScript(String script) throws IOException {
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream("/db/migration/" + script)) {
+            if (in == null) {
+                throw new IOException("Missing migration script: " + script);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.tariff.service;
+
+import com.tariff.model.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+// Stable content hash of a BOM's component set: items with the same components share a fingerprint
+// regardless of order or duplicates. 128 bits of SHA-256 keeps accidental collisions out of reach.
+public final class BomFingerprint {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private BomFingerprint() {}
+
+    public static String of(List<Component> components) {
+        String[] componentIds = new String[components.size()];
+        for (int i = 0; i < componentIds.length; i++) {
+            componentIds[i] = components.get(i).getComponentId();
+        }
+        Arrays.sort(componentIds);
+
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        String previous = null;
+        for (String componentId : componentIds) {
+            if (componentId.equals(previous)) {
+                continue;
+            }
+            digest.update(componentId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            previous = componentId;
+        }
+        byte[] hash = digest.digest();
+
+        char[] hex = new char[32];
+        for (int i = 0; i < 16; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
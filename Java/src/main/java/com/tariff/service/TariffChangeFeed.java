@@ -0,0 +1,204 @@
+package com.tariff.service;
+
+import com.tariff.config.DatabaseConfig;
+import com.tariff.connection.ConnectionPool;
+import com.tariff.model.TariffChange;
+import com.tariff.repository.TariffChangeRepository;
+import com.tariff.schema.SchemaMigrator;
+import com.tariff.tracing.CacheRefreshEvent;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+// Consumes the TariffChange feed and writes recomputed tariffs straight into the cache.
+// Wakes on NOTIFY from the V3 triggers and also polls, so a missed notification only
+// delays a refresh by one poll interval. One node consumes at a time (advisory lock);
+// the others stand by and take over when its session ends.
+public class TariffChangeFeed {
+    private static final Logger logger = LoggerFactory.getLogger(TariffChangeFeed.class);
+    private static final String CHANNEL = "tariff_change";
+    // Arbitrary constant shared by every node competing for the consumer role
+    private static final long CONSUMER_LOCK_ID = 0x74636866L;
+    // V3 creates TariffChange and the triggers that fill it
+    private static final int REQUIRED_SCHEMA_VERSION = 3;
+
+    private final TariffService service;
+    private final ConnectionPool connectionPool;
+    private final TariffChangeRepository changeRepository;
+    private final long pollMs;
+    private final int batchSize;
+    private final int refreshItems;
+    private final LongAdder consumedChanges = new LongAdder();
+    private final LongAdder refreshedItems = new LongAdder();
+
+    private volatile boolean running;
+    private volatile boolean consumer;
+    private volatile long lastLagMillis;
+    private Thread thread;
+
+    public TariffChangeFeed(TariffService service, ConnectionPool connectionPool, DatabaseConfig config) {
+        this(service, connectionPool, new TariffChangeRepository(connectionPool), config);
+    }
+
+    TariffChangeFeed(TariffService service, ConnectionPool connectionPool, TariffChangeRepository changeRepository,
+                     DatabaseConfig config) {
+        this.service = service;
+        this.connectionPool = connectionPool;
+        this.changeRepository = changeRepository;
+        this.pollMs = config.getChangeFeedPollMs();
+        this.batchSize = config.getChangeFeedBatchSize();
+        this.refreshItems = config.getChangeFeedRefreshItems();
+    }
+
+    // Fails fast on a database the feed cannot work against instead of retrying forever
+    public void start() throws SQLException {
+        try (Connection conn = connectionPool.getConnection()) {
+            int version = SchemaMigrator.currentVersion(conn);
+            if (version < REQUIRED_SCHEMA_VERSION) {
+                throw new IllegalStateException(String.format("Change feed needs schema version %d but the "
+                        + "database is at %d; run SchemaMigrator or set CHANGE_FEED_ENABLED=false",
+                        REQUIRED_SCHEMA_VERSION, version));
+            }
+        }
+        running = true;
+        thread = new Thread(this::run, "tariff-change-feed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isConsumer() {
+        return consumer;
+    }
+
+    public long getConsumedChanges() {
+        return consumedChanges.sum();
+    }
+
+    public long getRefreshedItems() {
+        return refreshedItems.sum();
+    }
+
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+
+    public void close() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join(pollMs * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            // Session lock and LISTEN both live and die with this connection
+            try (Connection session = connectionPool.openSessionConnection()) {
+                if (!tryAcquireConsumerLock(session)) {
+                    pause();
+                    continue;
+                }
+                consumer = true;
+                logger.info("Consuming tariff change feed");
+                try (Statement stmt = session.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+
+                PGConnection notifications = session.unwrap(PGConnection.class);
+                drain();
+                while (running) {
+                    // Blocks until a NOTIFY arrives or the poll interval passes
+                    notifications.getNotifications((int) pollMs);
+                    drain();
+                }
+            } catch (SQLException | RuntimeException e) {
+                logger.warn("Tariff change feed interrupted, retrying in {}ms: {}", pollMs, e.getMessage());
+                pause();
+            } finally {
+                consumer = false;
+            }
+        }
+    }
+
+    private boolean tryAcquireConsumerLock(Connection session) throws SQLException {
+        try (Statement stmt = session.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT pg_try_advisory_lock(" + CONSUMER_LOCK_ID + ")")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    // Consume until the feed is empty or a refresh fails
+    private void drain() throws SQLException {
+        boolean more = true;
+        while (running && more) {
+            more = consumeBatch();
+        }
+    }
+
+    // Rows are only deleted once their cache writes succeeded, so a failure leaves them in place
+    // for the next attempt. True when the batch was full and more changes may be waiting.
+    boolean consumeBatch() throws SQLException {
+        List<TariffChange> changes = changeRepository.fetchPending(batchSize);
+        if (changes.isEmpty()) {
+            lastLagMillis = 0;
+            return false;
+        }
+
+        CacheRefreshEvent event = new CacheRefreshEvent();
+        event.begin();
+        event.changeCount = changes.size();
+        event.lagMillis = Duration.between(changes.get(0).getChangedAt(), OffsetDateTime.now()).toMillis();
+        lastLagMillis = event.lagMillis;
+
+        boolean written;
+        try {
+            written = changeRepository.resolveAffectedItems(changes, refreshItems, batch -> {
+                event.itemCount += batch.size();
+                event.pairCount += batch.values().stream().mapToInt(Set::size).sum();
+                return service.refreshTariffs(batch);
+            });
+            event.written = written;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+
+        if (!written) {
+            logger.warn("Cache refresh incomplete for {} changes, retrying in {}ms", changes.size(), pollMs);
+            pause();
+            return false;
+        }
+
+        changeRepository.deleteChanges(changes);
+        consumedChanges.add(changes.size());
+        refreshedItems.add(event.itemCount);
+        logger.debug("Refreshed {} items for {} changes, lag {}ms",
+                event.itemCount, changes.size(), event.lagMillis);
+
+        return changes.size() == batchSize;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pollMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -1,23 +1,32 @@
 package com.tariff.service;
 
 import com.tariff.cache.CacheManager;
+import com.tariff.cache.OffHeapTariffStore;
 import com.tariff.config.DatabaseConfig;
 import com.tariff.connection.ConnectionPool;
+import com.tariff.connection.ReplicaDataSource;
+import com.tariff.enums.CacheNamespace;
 import com.tariff.enums.TariffCombinationPolicy;
 import com.tariff.model.CombinedTariff;
 import com.tariff.model.Component;
+import com.tariff.model.ComponentRateAggregate;
 import com.tariff.model.TariffRate;
 import com.tariff.repository.TariffRepository;
+import com.tariff.scheduler.RequestContext;
+import com.tariff.scheduler.RequestScheduler;
+import com.tariff.tracing.TariffCalculationEvent;
+import com.tariff.tracing.TariffCombineEvent;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 public class TariffService {
@@ -26,94 +35,161 @@ public class TariffService {
     private final DatabaseConfig config;
     private final ConnectionPool connectionPool;
     private final TariffRepository repository;
+    private final TariffRepository primaryRepository;
     private final CacheManager cacheManager;
-    private final ExecutorService executorService;
+    private final RequestScheduler scheduler;
+    private final TariffChangeFeed changeFeed;
 
     public TariffService(DatabaseConfig config) {
+        this(config, new ConnectionPool(config));
+    }
+
+    private TariffService(DatabaseConfig config, ConnectionPool connectionPool) {
+        this(config, connectionPool, new TariffRepository(connectionPool), new TariffRepository(connectionPool, true),
+                new CacheManager(connectionPool, config),
+                new RequestScheduler(config.getInteractiveThreads(), config.getBulkThreads()));
+    }
+
+    TariffService(DatabaseConfig config, ConnectionPool connectionPool, TariffRepository repository,
+                  TariffRepository primaryRepository, CacheManager cacheManager, RequestScheduler scheduler) {
         this.config = config;
-        this.connectionPool = new ConnectionPool(config);
-        this.repository = new TariffRepository(connectionPool);
-        this.cacheManager = new CacheManager(connectionPool);
-        this.executorService = Executors.newFixedThreadPool(20);
+        this.connectionPool = connectionPool;
+        this.repository = repository;
+        this.primaryRepository = primaryRepository;
+        this.cacheManager = cacheManager;
+        this.scheduler = scheduler;
+        this.changeFeed = config.isChangeFeedEnabled() ? new TariffChangeFeed(this, connectionPool, config) : null;
     }
 
     public void initialize() throws SQLException {
         connectionPool.initialize();
+        if (changeFeed != null) {
+            changeFeed.start();
+        }
         logger.info("TariffService initialized successfully");
     }
 
     public List<Component> resolveBom(String itemId) throws SQLException {
-        String cacheKey = cacheManager.generateCacheKey("bom", "resolveBom", itemId);
+        String cacheKey = cacheManager.generateCacheKey(CacheNamespace.BOM, itemId);
 
         // Try cache first
-        @SuppressWarnings("unchecked")
-        List<Component> cached = cacheManager.get(cacheKey, List.class);
+        List<Component> cached = cacheManager.getList(cacheKey, Component.class);
         if (cached != null) {
             return cached;
         }
 
-        // Fetch from database
+        // Fetch from database, versioned so a concurrent change-feed refresh wins over this write
+        long version = cacheManager.readDataVersion();
         List<Component> components = repository.resolveBom(itemId);
 
         // Cache the result
-        cacheManager.set(cacheKey, components, config.getBomCacheTtl());
+        cacheManager.set(cacheKey, components, config.getBomCacheTtl(), version);
 
         return components;
     }
 
     public Optional<TariffRate> getEntityTariff(String entityId, String country) throws SQLException {
-        String cacheKey = cacheManager.generateCacheKey("tariff", "getEntityTariff", entityId, country);
+        String cacheKey = cacheManager.generateCacheKey(CacheNamespace.TARIFF, entityId, country);
 
-        // Try cache first
-        TariffRate cached = cacheManager.get(cacheKey, TariffRate.class);
+        // Try cache first; entities without an active rule are cached as absent
+        Optional<TariffRate> cached = cacheManager.getOptional(cacheKey, TariffRate.class);
         if (cached != null) {
-            return Optional.of(cached);
+            return cached;
         }
 
         // Fetch from database
+        long version = cacheManager.readDataVersion();
         Optional<TariffRate> tariff = repository.getEntityTariff(entityId, country);
 
-        // Cache the result if present
-        tariff.ifPresent(tariffRate -> cacheManager.set(cacheKey, tariffRate, config.getCacheTtl()));
+        // Cache the result, or its absence
+        cacheManager.set(cacheKey, tariff.orElse(null), config.getCacheTtl(), version);
 
         return tariff;
     }
 
+    // Never throws: items that fail or miss the bulk deadline map to an empty BOM
     public Map<String, List<Component>> batchResolveBom(List<String> itemIds) {
-        List<CompletableFuture<Map.Entry<String, List<Component>>>> futures = itemIds.stream()
-                .map(itemId -> CompletableFuture.supplyAsync(() -> {
+        RequestContext context = bulkContext();
+        return awaitEach(itemIds, submitResolveBoms(itemIds, context), context, "resolveBom",
+                Collections.emptyList());
+    }
+
+    public Map<String, List<Component>> batchResolveBom(List<String> itemIds, RequestContext context) {
+        return awaitAll(submitResolveBoms(itemIds, context), context, "resolveBom");
+    }
+
+    private List<CompletableFuture<Map.Entry<String, List<Component>>>> submitResolveBoms(List<String> itemIds,
+                                                                                         RequestContext context) {
+        return itemIds.stream()
+                .map(itemId -> scheduler.submit(context, "resolveBom", () -> {
                     try {
                         return Map.entry(itemId, resolveBom(itemId));
                     } catch (SQLException e) {
                         logger.error("Error resolving BOM for {}: {}", itemId, e.getMessage());
                         return Map.entry(itemId, Collections.<Component>emptyList());
                     }
-                }, executorService))
+                }))
                 .collect(Collectors.toList());
-
-        return futures.stream()
-                .map(CompletableFuture::join)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
+    // Never throws: entries that fail or miss the bulk deadline map to Optional.empty()
     public Map<String, Optional<TariffRate>> batchGetEntityTariff(List<Map.Entry<String, String>> requests) {
-        List<CompletableFuture<Map.Entry<String, Optional<TariffRate>>>> futures = requests.stream()
-                .map(request -> CompletableFuture.supplyAsync(() -> {
-                    try {
-                        String key = request.getKey() + "_" + request.getValue();
-                        return Map.entry(key, getEntityTariff(request.getKey(), request.getValue()));
-                    } catch (SQLException e) {
-                        logger.error("Error getting tariff for {}, {}: {}",
-                                request.getKey(), request.getValue(), e.getMessage());
-                        return Map.entry(request.getKey() + "_" + request.getValue(),
-                                Optional.<TariffRate>empty());
-                    }
-                }, executorService))
+        RequestContext context = bulkContext();
+        List<String> keys = requests.stream()
+                .map(request -> request.getKey() + "_" + request.getValue())
+                .collect(Collectors.toList());
+        return awaitEach(keys, submitEntityTariffs(requests, context), context, "getEntityTariff", Optional.empty());
+    }
+
+    // Throws if any lookup fails, so a failed lookup is never taken for an entity without a tariff
+    public Map<String, Optional<TariffRate>> batchGetEntityTariff(List<Map.Entry<String, String>> requests,
+                                                                  RequestContext context) {
+        return awaitAll(submitEntityTariffs(requests, context), context, "getEntityTariff");
+    }
+
+    private List<CompletableFuture<Map.Entry<String, Optional<TariffRate>>>> submitEntityTariffs(
+            List<Map.Entry<String, String>> requests, RequestContext context) {
+        return requests.stream()
+                .map(request -> scheduler.submit(context, "getEntityTariff", () -> Map.entry(
+                        request.getKey() + "_" + request.getValue(),
+                        getEntityTariff(request.getKey(), request.getValue()))))
                 .collect(Collectors.toList());
+    }
+
+    // Waits within the request deadline; on failure the remaining stages are cancelled
+    private <T> Map<String, T> awaitAll(List<CompletableFuture<Map.Entry<String, T>>> futures,
+                                        RequestContext context, String stage) {
+        Map<String, T> results = new HashMap<>();
+        try {
+            for (CompletableFuture<Map.Entry<String, T>> future : futures) {
+                Map.Entry<String, T> entry = context.await(future, stage);
+                results.put(entry.getKey(), entry.getValue());
+            }
+        } catch (RuntimeException e) {
+            context.cancel();
+            throw e;
+        } catch (Exception e) {
+            context.cancel();
+            throw new CompletionException(e);
+        }
+        return results;
+    }
 
-        return futures.stream()
-                .map(CompletableFuture::join)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    // Best effort within the request deadline; keys[i] names futures[i] so that entries which
+    // failed or did not finish in time still get the fallback value
+    private <T> Map<String, T> awaitEach(List<String> keys, List<CompletableFuture<Map.Entry<String, T>>> futures,
+                                         RequestContext context, String stage, T fallback) {
+        Map<String, T> results = new HashMap<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                Map.Entry<String, T> entry = context.await(futures.get(i), stage);
+                results.put(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                logger.error("Error in {} for {}: {}", stage, keys.get(i), e.getMessage());
+                results.put(keys.get(i), fallback);
+            }
+        }
+        return results;
     }
 
     public TariffCombinationPolicy getCombinationPolicy(String policyVersionId) throws SQLException {
@@ -131,6 +207,11 @@ public class TariffService {
                 .map(t -> BigDecimal.valueOf(t.getTariffRate()))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
+        return combineRates(itemRate, componentRate, policy);
+    }
+
+    private TariffCalculationResult combineRates(BigDecimal itemRate, BigDecimal componentRate,
+                                                 TariffCombinationPolicy policy) {
         BigDecimal finalRate = switch (policy) {
             case MAXIMUM -> itemRate.max(componentRate);
             case MINIMUM -> itemRate.min(componentRate);
@@ -143,94 +224,383 @@ public class TariffService {
     }
 
     public CombinedTariff calculateTotalTariff(String itemId, String country) throws SQLException {
-        String cacheKey = cacheManager.generateCacheKey("calculatedTariff", "calculateTotalTariff", itemId, country);
+        return calculateTotalTariff(itemId, country, interactiveContext());
+    }
+
+    public CombinedTariff calculateTotalTariff(String itemId, String country, RequestContext context)
+            throws SQLException {
+        TariffCalculationEvent event = new TariffCalculationEvent();
+        boolean traced = event.isEnabled();
+        event.begin();
+
+        String cacheKey = cacheManager.generateCacheKey(CacheNamespace.CALCULATED_TARIFF, itemId, country);
 
         // Try cache first
-        CombinedTariff cached = cacheManager.get(cacheKey, CombinedTariff.class);
+        CombinedTariff cached = cacheManager.getCombinedTariff(cacheKey, itemId, country);
         if (cached != null) {
+            if (traced) {
+                event.cacheHit = true;
+            }
+            commitCalculation(event, itemId, country, 1);
             return cached;
         }
 
-        logger.info("Starting tariff calculation item_id={}, country={}", itemId, country);
+        logger.debug("Starting tariff calculation item_id={}, country={}", itemId, country);
 
         try {
+            long version = cacheManager.readDataVersion();
+
             // Step 1: Resolve BOM and get item tariff in parallel
-            CompletableFuture<List<Component>> bomFuture = CompletableFuture.supplyAsync(() -> {
-                try {
-                    return resolveBom(itemId);
-                } catch (SQLException e) {
-                    throw new RuntimeException(e);
+            CompletableFuture<List<Component>> bomFuture =
+                    scheduler.submit(context, "resolveBom", () -> resolveBom(itemId));
+
+            CompletableFuture<Optional<TariffRate>> itemTariffFuture =
+                    scheduler.submit(context, "getEntityTariff", () -> getEntityTariff(itemId, country));
+
+            List<Component> components = context.await(bomFuture, "resolveBom");
+            Optional<TariffRate> itemTariff = context.await(itemTariffFuture, "getEntityTariff");
+
+            if (traced) {
+                event.componentCount = components.size();
+            }
+            logger.debug("BOM and item tariff resolved item_id={}, components_count={}", itemId, components.size());
+
+            // Step 2: Component rates, shared by every item with the same BOM fingerprint
+            String fingerprint = BomFingerprint.of(components);
+            String aggregateKey = cacheManager.generateCacheKey(CacheNamespace.COMPONENT_RATES, fingerprint, country);
+            ComponentRateAggregate aggregate = cacheManager.get(aggregateKey, ComponentRateAggregate.class);
+            boolean shared = aggregate != null;
+
+            if (!shared) {
+                List<Map.Entry<String, String>> batchRequests = components.stream()
+                        .map(comp -> Map.entry(comp.getComponentId(), country))
+                        .collect(Collectors.toList());
+
+                // Fails the calculation if any lookup failed: an aggregate missing that component's rate
+                // would otherwise be cached and shared by every item with this BOM
+                Map<String, Optional<TariffRate>> componentTariffResults = batchGetEntityTariff(batchRequests, context);
+
+                Map<String, TariffRate> componentTariffs = new HashMap<>();
+                for (Component comp : components) {
+                    componentTariffResults.getOrDefault(comp.getComponentId() + "_" + country, Optional.empty())
+                            .ifPresent(tariff -> componentTariffs.put(comp.getComponentId(), tariff));
                 }
-            }, executorService);
 
-            CompletableFuture<Optional<TariffRate>> itemTariffFuture = CompletableFuture.supplyAsync(() -> {
-                try {
-                    return getEntityTariff(itemId, country);
-                } catch (SQLException e) {
-                    throw new RuntimeException(e);
-                }
-            }, executorService);
-
-            List<Component> components = bomFuture.join();
-            Optional<TariffRate> itemTariff = itemTariffFuture.join();
-
-            logger.info("BOM and item tariff resolved item_id={}, components_count={}", itemId, components.size());
-
-            // Step 2: Fetch component tariffs in batch
-            List<Map.Entry<String, String>> batchRequests = components.stream()
-                    .map(comp -> Map.entry(comp.getComponentId(), country))
-                    .collect(Collectors.toList());
-
-            Map<String, Optional<TariffRate>> componentTariffResults = batchGetEntityTariff(batchRequests);
-
-            Map<String, TariffRate> componentTariffs = componentTariffResults.entrySet().stream()
-                    .filter(entry -> entry.getValue().isPresent())
-                    .collect(Collectors.toMap(
-                            entry -> entry.getKey().split("_")[0], // Extract component ID
-                            entry -> entry.getValue().get()
-                    ));
-
-            logger.info("Component tariffs fetched, item_id={}, components_with_tariffs={}",
-                    itemId, componentTariffs.size());
-
-            // Step 3: Get combination policy
-            String policyVersionId = itemTariff.map(TariffRate::getPolicyVersionId)
-                    .orElse(componentTariffs.values().stream()
-                            .findFirst()
-                            .map(TariffRate::getPolicyVersionId)
-                            .orElse(null));
-
-            TariffCombinationPolicy combinationPolicy = policyVersionId != null ?
-                    getCombinationPolicy(policyVersionId) : TariffCombinationPolicy.ADDITIVE;
-
-            // Step 4: Combine tariffs
-            TariffCalculationResult calculationResult = combineTariff(itemTariff, componentTariffs, combinationPolicy);
-
-            // Step 5: Create result
-            CombinedTariff result = new CombinedTariff(
-                    itemId,
-                    country,
-                    calculationResult.getItemRate(),
-                    calculationResult.getComponentRate(),
-                    calculationResult.getFinalRate(),
-                    combinationPolicy,
-                    new ArrayList<>(componentTariffs.keySet()),
-                    LocalDateTime.now()
-            );
+                aggregate = aggregateComponentRates(fingerprint, country, components, componentTariffs);
+                cacheManager.set(aggregateKey, aggregate, config.getCacheTtl(), version);
+            }
+
+            if (traced) {
+                event.componentRatesShared = shared;
+                event.componentsWithTariffs = aggregate.getComponentsUsed().size();
+            }
+            logger.debug("Component rates resolved, item_id={}, fingerprint={}, components_with_tariffs={}",
+                    itemId, fingerprint, aggregate.getComponentsUsed().size());
+
+            // Step 3: Apply combination policy
+            context.checkDeadline("combine");
+            CombinedTariff result = buildCombinedTariff(itemId, country, itemTariff, aggregate,
+                    this::getCombinationPolicy);
 
             // Cache the result
-            cacheManager.set(cacheKey, result, config.getCacheTtl());
+            cacheManager.set(cacheKey, result, config.getCacheTtl(), version);
 
-            logger.info("Tariff calculation completed, item_id={}, country={}, final_rate={}, policy={}",
-                    itemId, country, calculationResult.getFinalRate(), combinationPolicy.getValue());
+            if (traced) {
+                event.policy = result.getCombinationPolicy().getValue();
+            }
+            logger.debug("Tariff calculation completed, item_id={}, country={}, final_rate={}, policy={}",
+                    itemId, country, result.getFinalTariffRate(), result.getCombinationPolicy().getValue());
 
             return result;
 
         } catch (Exception e) {
+            context.cancel();
             logger.error("Tariff calculation failed, item_id={}, country={}, error={}",
                     itemId, country, e.getMessage());
             throw new SQLException("Tariff calculation failed", e);
+        } finally {
+            commitCalculation(event, itemId, country, 1);
+        }
+    }
+
+    public Map<String, CombinedTariff> calculateTotalTariffAcrossCountries(String itemId, Collection<String> countries)
+            throws SQLException {
+        return calculateTotalTariffAcrossCountries(itemId, countries, interactiveContext());
+    }
+
+    public Map<String, CombinedTariff> calculateTotalTariffAcrossCountries(String itemId, Collection<String> countries,
+                                                                         RequestContext context) throws SQLException {
+        Map<String, CombinedTariff> results = new HashMap<>();
+        if (countries == null || countries.isEmpty()) {
+            return results;
+        }
+
+        TariffCalculationEvent event = new TariffCalculationEvent();
+        boolean traced = event.isEnabled();
+        event.begin();
+
+        // Try the off-heap matrix, then Redis for the rest in one round trip
+        Map<String, String> cacheKeys = new LinkedHashMap<>();
+        for (String country : countries) {
+            cacheKeys.put(country, cacheManager.generateCacheKey(CacheNamespace.CALCULATED_TARIFF, itemId, country));
+        }
+        Map<String, CombinedTariff> cached = cacheManager.getCombinedTariffs(itemId, cacheKeys);
+
+        List<String> missingCountries = new ArrayList<>();
+        for (Map.Entry<String, String> entry : cacheKeys.entrySet()) {
+            CombinedTariff hit = cached.get(entry.getKey());
+            if (hit != null) {
+                results.put(entry.getKey(), hit);
+            } else {
+                missingCountries.add(entry.getKey());
+            }
+        }
+        if (missingCountries.isEmpty()) {
+            if (traced) {
+                event.cacheHit = true;
+            }
+            commitCalculation(event, itemId, null, countries.size());
+            return results;
+        }
+
+        logger.debug("Starting multi-country tariff calculation item_id={}, countries={}", itemId, missingCountries.size());
+
+        try {
+            long version = cacheManager.readDataVersion();
+
+            // Step 1: Resolve BOM once for all countries
+            context.checkDeadline("resolveBom");
+            List<Component> components = resolveBom(itemId);
+            if (traced) {
+                event.componentCount = components.size();
+            }
+
+            // Step 2: Reuse component rates already aggregated for this BOM fingerprint
+            String fingerprint = BomFingerprint.of(components);
+            Map<String, String> aggregateKeys = new LinkedHashMap<>();
+            for (String country : missingCountries) {
+                aggregateKeys.put(country, cacheManager.generateCacheKey(CacheNamespace.COMPONENT_RATES, fingerprint, country));
+            }
+            Map<String, ComponentRateAggregate> cachedAggregates =
+                    cacheManager.getAll(new ArrayList<>(aggregateKeys.values()), ComponentRateAggregate.class);
+            boolean allAggregatesCached = cachedAggregates.size() == aggregateKeys.size();
+            if (traced) {
+                event.componentRatesShared = allAggregatesCached;
+            }
+
+            // Step 3: Fetch item tariffs, and component tariffs only where needed, in one query
+            Set<String> entityIds = new LinkedHashSet<>();
+            entityIds.add(itemId);
+            if (!allAggregatesCached) {
+                components.forEach(comp -> entityIds.add(comp.getComponentId()));
+            }
+
+            context.checkDeadline("getEntityTariffs");
+            Map<String, Map<String, TariffRate>> tariffsByEntity = repository.getEntityTariffs(entityIds, missingCountries);
+
+            // Step 4: Combine per country, resolving each policy version once
+            PolicyResolver policies = memoizedPolicies(repository);
+            Map<String, Object> toCache = new HashMap<>();
+            for (String country : missingCountries) {
+                String countryCode = country.toUpperCase();
+                Optional<TariffRate> itemTariff = Optional.ofNullable(
+                        tariffsByEntity.getOrDefault(itemId, Collections.emptyMap()).get(countryCode));
+
+                ComponentRateAggregate aggregate = cachedAggregates.get(aggregateKeys.get(country));
+                if (aggregate == null) {
+                    Map<String, TariffRate> componentTariffs = new HashMap<>();
+                    for (Component comp : components) {
+                        TariffRate tariff = tariffsByEntity.getOrDefault(comp.getComponentId(), Collections.emptyMap())
+                                .get(countryCode);
+                        if (tariff != null) {
+                            componentTariffs.put(comp.getComponentId(), tariff);
+                        }
+                    }
+                    aggregate = aggregateComponentRates(fingerprint, country, components, componentTariffs);
+                    toCache.put(aggregateKeys.get(country), aggregate);
+                }
+
+                CombinedTariff result = buildCombinedTariff(itemId, country, itemTariff, aggregate, policies);
+
+                results.put(country, result);
+                toCache.put(cacheKeys.get(country), result);
+            }
+
+            // Cache every country and new component aggregate in one pipelined write
+            cacheManager.setAll(toCache, config.getCacheTtl(), version);
+
+            logger.debug("Multi-country tariff calculation completed, item_id={}, countries={}, components_count={}",
+                    itemId, missingCountries.size(), components.size());
+
+            return results;
+
+        } catch (Exception e) {
+            logger.error("Multi-country tariff calculation failed, item_id={}, error={}", itemId, e.getMessage());
+            throw new SQLException("Tariff calculation failed", e);
+        } finally {
+            commitCalculation(event, itemId, null, countries.size());
+        }
+    }
+
+    // Recomputes everything the given items' tariffs depend on (BOM, entity tariffs, shared component
+    // rates, combined result) from the primary and overwrites the cached entries in place, so readers
+    // move to the new rates without a miss. Returns false if any cache write failed.
+    public boolean refreshTariffs(Map<String, Set<String>> countriesByItem) throws SQLException {
+        if (countriesByItem.isEmpty()) {
+            return true;
+        }
+
+        // Published before reading, so everything written below replaces what readers cached from
+        // older data, and their later writes from replicas that are behind this position are refused
+        long version = cacheManager.publishDataVersion(connectionPool.currentWalLsn());
+        Map<String, List<Component>> boms = primaryRepository.resolveBoms(countriesByItem.keySet());
+
+        Set<String> entityIds = new LinkedHashSet<>();
+        Set<String> countries = new LinkedHashSet<>();
+        for (Map.Entry<String, Set<String>> entry : countriesByItem.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            entityIds.add(entry.getKey());
+            boms.getOrDefault(entry.getKey(), Collections.emptyList())
+                    .forEach(comp -> entityIds.add(comp.getComponentId()));
+            countries.addAll(entry.getValue());
+        }
+        Map<String, Map<String, TariffRate>> tariffsByEntity = countries.isEmpty()
+                ? Collections.emptyMap() : primaryRepository.getEntityTariffs(entityIds, countries);
+
+        PolicyResolver policies = memoizedPolicies(primaryRepository);
+        Map<String, Object> bomEntries = new HashMap<>();
+        Map<String, Object> toCache = new HashMap<>();
+        Map<String, ComponentRateAggregate> aggregates = new HashMap<>();
+
+        for (Map.Entry<String, Set<String>> entry : countriesByItem.entrySet()) {
+            String itemId = entry.getKey();
+            List<Component> components = boms.getOrDefault(itemId, Collections.emptyList());
+            bomEntries.put(cacheManager.generateCacheKey(CacheNamespace.BOM, itemId), components);
+            String fingerprint = BomFingerprint.of(components);
+
+            for (String country : entry.getValue()) {
+                // Entity tariffs are overwritten in place; a rule that no longer applies becomes a cached
+                // absence rather than a deleted key, which would send readers to a possibly lagging replica
+                Map<String, TariffRate> componentTariffs = new HashMap<>();
+                for (Component comp : components) {
+                    TariffRate tariff = tariffsByEntity.getOrDefault(comp.getComponentId(), Collections.emptyMap())
+                            .get(country);
+                    if (tariff != null) {
+                        componentTariffs.put(comp.getComponentId(), tariff);
+                    }
+                    toCache.put(cacheManager.generateCacheKey(CacheNamespace.TARIFF, comp.getComponentId(), country),
+                            tariff);
+                }
+                Optional<TariffRate> itemTariff = Optional.ofNullable(
+                        tariffsByEntity.getOrDefault(itemId, Collections.emptyMap()).get(country));
+                toCache.put(cacheManager.generateCacheKey(CacheNamespace.TARIFF, itemId, country), itemTariff.orElse(null));
+
+                String aggregateKey = cacheManager.generateCacheKey(CacheNamespace.COMPONENT_RATES, fingerprint, country);
+                ComponentRateAggregate aggregate = aggregates.computeIfAbsent(aggregateKey,
+                        k -> aggregateComponentRates(fingerprint, country, components, componentTariffs));
+                toCache.put(aggregateKey, aggregate);
+
+                CombinedTariff result = buildCombinedTariff(itemId, country, itemTariff, aggregate, policies);
+                toCache.put(cacheManager.generateCacheKey(CacheNamespace.CALCULATED_TARIFF, itemId, country), result);
+            }
+        }
+
+        boolean written = cacheManager.setAll(bomEntries, config.getBomCacheTtl(), version);
+        written &= cacheManager.setAll(toCache, config.getCacheTtl(), version);
+        return written;
+    }
+
+    // Keyed by component id so that every ordering of the same component set, which shares one
+    // fingerprint and therefore one cached aggregate, produces the same rate, list and fallback policy
+    static ComponentRateAggregate aggregateComponentRates(String fingerprint, String country,
+                                                          List<Component> components,
+                                                          Map<String, TariffRate> componentTariffs) {
+        TreeMap<String, TariffRate> used = new TreeMap<>();
+        for (Component comp : components) {
+            TariffRate tariff = componentTariffs.get(comp.getComponentId());
+            if (tariff != null) {
+                used.put(comp.getComponentId(), tariff);
+            }
+        }
+
+        BigDecimal componentRate = BigDecimal.ZERO;
+        String policyVersionId = null;
+        for (TariffRate tariff : used.values()) {
+            componentRate = componentRate.add(BigDecimal.valueOf(tariff.getTariffRate()));
+            if (policyVersionId == null) {
+                policyVersionId = tariff.getPolicyVersionId();
+            }
+        }
+
+        return new ComponentRateAggregate(fingerprint, country, componentRate, new ArrayList<>(used.keySet()),
+                policyVersionId);
+    }
+
+    private CombinedTariff buildCombinedTariff(String itemId, String country, Optional<TariffRate> itemTariff,
+                                               ComponentRateAggregate aggregate,
+                                               PolicyResolver policyResolver) throws SQLException {
+        TariffCombineEvent event = new TariffCombineEvent();
+        event.begin();
+
+        // Get combination policy
+        String policyVersionId = itemTariff.map(TariffRate::getPolicyVersionId)
+                .orElse(aggregate.getPolicyVersionId());
+
+        TariffCombinationPolicy combinationPolicy = policyVersionId != null ?
+                policyResolver.resolve(policyVersionId) : TariffCombinationPolicy.ADDITIVE;
+
+        // Combine tariffs
+        BigDecimal itemRate = itemTariff.map(t -> BigDecimal.valueOf(t.getTariffRate()))
+                .orElse(BigDecimal.ZERO);
+        TariffCalculationResult calculationResult =
+                combineRates(itemRate, aggregate.getComponentTariffRate(), combinationPolicy);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.itemId = itemId;
+            event.countryCode = country;
+            event.componentCount = aggregate.getComponentsUsed().size();
+            event.policy = combinationPolicy.getValue();
+            event.commit();
         }
+
+        return new CombinedTariff(
+                itemId,
+                country,
+                calculationResult.getItemRate(),
+                calculationResult.getComponentRate(),
+                calculationResult.getFinalRate(),
+                combinationPolicy,
+                new ArrayList<>(aggregate.getComponentsUsed()),
+                LocalDateTime.now()
+        );
+    }
+
+    // e.g. after a policy change: every cached calculation is dropped in one INCR
+    public long invalidateCache(CacheNamespace namespace) {
+        return cacheManager.bumpGeneration(namespace);
+    }
+
+    public RequestContext interactiveContext() {
+        return RequestContext.interactive(Duration.ofMillis(config.getInteractiveDeadlineMs()));
+    }
+
+    public RequestContext bulkContext() {
+        return RequestContext.bulk(Duration.ofMillis(config.getBulkDeadlineMs()));
+    }
+
+    public RequestScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    public CacheManager getCacheManager() {
+        return cacheManager;
     }
 
     public Map<String, String> healthCheck() {
@@ -242,6 +612,32 @@ public class TariffService {
             // Check Redis connection
             cacheManager.get("health_check", String.class);
 
+            OffHeapTariffStore tariffMatrix = cacheManager.getTariffMatrix();
+            if (tariffMatrix != null) {
+                health.put("offHeapMatrix", String.format("entries=%d capacity=%d evictions=%d",
+                        tariffMatrix.size(), tariffMatrix.capacity(), tariffMatrix.getEvictionCount()));
+            }
+
+            // Report replicas without failing the check; reads fall back to the primary
+            for (ReplicaDataSource replica : connectionPool.getReplicas()) {
+                HikariPoolMXBean pool = replica.getPoolMXBean();
+                String state = String.format("%s lag_ms=%s active=%d idle=%d awaiting=%d routed=%d",
+                        replica.isUsable(config.getDbReplicaMaxLagMs(), connectionPool.getMinReplayLsn())
+                                ? "routable" : "excluded",
+                        replica.isHealthy() ? String.valueOf(replica.getLagMillis()) : "n/a",
+                        pool != null ? pool.getActiveConnections() : 0,
+                        pool != null ? pool.getIdleConnections() : 0,
+                        pool != null ? pool.getThreadsAwaitingConnection() : 0,
+                        replica.getRoutedConnections());
+                health.put("replica." + replica.getName(), state);
+            }
+
+            if (changeFeed != null) {
+                health.put("changeFeed", String.format("%s lag_ms=%d consumed=%d refreshed_items=%d",
+                        changeFeed.isConsumer() ? "consuming" : "standby", changeFeed.getLastLagMillis(),
+                        changeFeed.getConsumedChanges(), changeFeed.getRefreshedItems()));
+            }
+
             health.put("status", "healthy");
             health.put("timestamp", LocalDateTime.now().toString());
         } catch (Exception e) {
@@ -254,11 +650,43 @@ public class TariffService {
     }
 
     public void close() {
+        if (changeFeed != null) {
+            changeFeed.close();
+        }
+        cacheManager.close();
         connectionPool.close();
-        executorService.shutdown();
+        scheduler.close();
         logger.info("TariffService closed successfully");
     }
 
+    private static void commitCalculation(TariffCalculationEvent event, String itemId, String country, int countryCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.itemId = itemId;
+            event.countryCode = country;
+            event.countryCount = countryCount;
+            event.commit();
+        }
+    }
+
+    // Resolves each policy version at most once per calculation
+    private static PolicyResolver memoizedPolicies(TariffRepository repository) {
+        Map<String, TariffCombinationPolicy> policies = new HashMap<>();
+        return policyVersionId -> {
+            TariffCombinationPolicy policy = policies.get(policyVersionId);
+            if (policy == null) {
+                policy = repository.getCombinationPolicy(policyVersionId);
+                policies.put(policyVersionId, policy);
+            }
+            return policy;
+        };
+    }
+
+    @FunctionalInterface
+    private interface PolicyResolver {
+        TariffCombinationPolicy resolve(String policyVersionId) throws SQLException;
+    }
+
     // Inner class for tariff calculation results
     public static class TariffCalculationResult {
         private final BigDecimal itemRate;
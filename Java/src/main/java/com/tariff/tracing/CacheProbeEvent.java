@@ -0,0 +1,26 @@
+package com.tariff.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.tariff.CacheProbe")
+@Label("Cache Probe")
+@Description("Redis lookup of one or more cache keys")
+@Category({"Tariff", "Stage"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class CacheProbeEvent extends Event {
+    @Label("Namespace")
+    public String namespace;
+
+    @Label("Key Count")
+    public int keyCount;
+
+    @Label("Hit Count")
+    public int hitCount;
+}
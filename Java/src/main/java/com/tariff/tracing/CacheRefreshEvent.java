@@ -0,0 +1,35 @@
+package com.tariff.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+@Name("com.tariff.CacheRefresh")
+@Label("Cache Refresh")
+@Description("Batch of TariffChange rows recomputed and written through to the cache")
+@Category({"Tariff", "Change Feed"})
+// One per feed batch, so every batch is kept along with its lag
+@Threshold("0 ms")
+@StackTrace(false)
+public class CacheRefreshEvent extends Event {
+    @Label("Change Count")
+    public int changeCount;
+
+    @Label("Item Count")
+    public int itemCount;
+
+    @Label("Item Country Pairs")
+    public int pairCount;
+
+    @Label("Oldest Change Age")
+    @Timespan(Timespan.MILLISECONDS)
+    public long lagMillis;
+
+    @Label("Written")
+    public boolean written;
+}
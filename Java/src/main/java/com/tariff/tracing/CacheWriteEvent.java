@@ -0,0 +1,23 @@
+package com.tariff.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.tariff.CacheWrite")
+@Label("Cache Write")
+@Description("Redis write of one or more cache entries")
+@Category({"Tariff", "Stage"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class CacheWriteEvent extends Event {
+    @Label("Namespace")
+    public String namespace;
+
+    @Label("Key Count")
+    public int keyCount;
+}
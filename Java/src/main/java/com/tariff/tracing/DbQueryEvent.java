@@ -0,0 +1,32 @@
+package com.tariff.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.tariff.DbQuery")
+@Label("Database Query")
+@Description("PostgreSQL query issued by TariffRepository")
+@Category({"Tariff", "Stage"})
+@Threshold("10 ms")
+@StackTrace(false)
+public class DbQueryEvent extends Event {
+    @Label("Query")
+    public String query;
+
+    @Label("Entity Id")
+    public String entityId;
+
+    @Label("Country Code")
+    public String countryCode;
+
+    @Label("Entity Count")
+    public int entityCount;
+
+    @Label("Row Count")
+    public int rowCount;
+}
@@ -0,0 +1,85 @@
+package com.tariff.tracing;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class RecordingSummary {
+    private static final String EVENT_PREFIX = "com.tariff.";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: RecordingSummary <recording.jfr>");
+            System.exit(1);
+        }
+        System.out.print(summarize(Paths.get(args[0])));
+    }
+
+    public static String summarize(Path recording) throws IOException {
+        Map<String, List<Long>> durationsByStage = new TreeMap<>();
+
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                String name = event.getEventType().getName();
+                if (!name.startsWith(EVENT_PREFIX)) {
+                    continue;
+                }
+                durationsByStage.computeIfAbsent(stageName(event), k -> new ArrayList<>())
+                        .add(event.getDuration().toNanos());
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-36s %9s %11s %11s %11s %11s %11s %13s%n",
+                "stage", "count", "mean(ms)", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)", "total(ms)"));
+        for (Map.Entry<String, List<Long>> entry : durationsByStage.entrySet()) {
+            long[] durations = entry.getValue().stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(durations);
+            long total = Arrays.stream(durations).sum();
+            sb.append(String.format("%-36s %9d %11.3f %11.3f %11.3f %11.3f %11.3f %13.1f%n",
+                    entry.getKey(),
+                    durations.length,
+                    toMillis(total / durations.length),
+                    toMillis(percentile(durations, 0.50)),
+                    toMillis(percentile(durations, 0.90)),
+                    toMillis(percentile(durations, 0.99)),
+                    toMillis(durations[durations.length - 1]),
+                    toMillis(total)));
+        }
+        return sb.toString();
+    }
+
+    // Break stages down by their most useful discriminator so hits and misses don't blur together
+    private static String stageName(RecordedEvent event) {
+        String name = event.getEventType().getName().substring(EVENT_PREFIX.length());
+        switch (name) {
+            case "TariffCalculation":
+                return name + (event.getBoolean("cacheHit") ? " [hit]" : " [miss]");
+            case "DbQuery":
+                return name + " [" + event.getString("query") + "]";
+            case "CacheProbe":
+            case "CacheWrite":
+                return name + " [" + event.getString("namespace") + "]";
+            default:
+                return name;
+        }
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
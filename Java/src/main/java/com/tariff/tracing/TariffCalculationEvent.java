@@ -0,0 +1,42 @@
+package com.tariff.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.tariff.TariffCalculation")
+@Label("Tariff Calculation")
+@Description("End-to-end calculation of a combined tariff for one item")
+@Category({"Tariff", "Calculation"})
+@Threshold("10 ms")
+@StackTrace(false)
+public class TariffCalculationEvent extends Event {
+    @Label("Item Id")
+    public String itemId;
+
+    @Label("Country Code")
+    public String countryCode;
+
+    @Label("Country Count")
+    public int countryCount;
+
+    @Label("Component Count")
+    public int componentCount;
+
+    @Label("Components With Tariffs")
+    public int componentsWithTariffs;
+
+    @Label("Cache Hit")
+    public boolean cacheHit;
+
+    @Label("Component Rates Shared")
+    @Description("Component rates came from another item with the same BOM fingerprint")
+    public boolean componentRatesShared;
+
+    @Label("Combination Policy")
+    public String policy;
+}
@@ -0,0 +1,29 @@
+package com.tariff.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.tariff.TariffCombine")
+@Label("Tariff Combine")
+@Description("Policy resolution and combination of item and component rates")
+@Category({"Tariff", "Stage"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class TariffCombineEvent extends Event {
+    @Label("Item Id")
+    public String itemId;
+
+    @Label("Country Code")
+    public String countryCode;
+
+    @Label("Component Count")
+    public int componentCount;
+
+    @Label("Combination Policy")
+    public String policy;
+}
@@ -0,0 +1,34 @@
+-- Base schema read by TariffRepository
+
+CREATE TABLE IF NOT EXISTS PolicyVersion (
+    policy_version_id UUID PRIMARY KEY,
+    tariff_combination_policy VARCHAR(20) NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE
+);
+
+CREATE TABLE IF NOT EXISTS Component (
+    component_id VARCHAR(64) PRIMARY KEY,
+    description TEXT,
+    material_type VARCHAR(64)
+);
+
+-- The primary key leads with item_id, so it also serves resolveBom's item_id lookup
+-- as an index-only source of component_id
+CREATE TABLE IF NOT EXISTS Item_Component (
+    item_id VARCHAR(64) NOT NULL,
+    component_id VARCHAR(64) NOT NULL REFERENCES Component (component_id),
+    PRIMARY KEY (item_id, component_id)
+);
+
+CREATE TABLE IF NOT EXISTS TariffRule (
+    tariff_id UUID PRIMARY KEY,
+    tariff_rate NUMERIC(7, 4) NOT NULL,
+    level VARCHAR(20) NOT NULL,
+    entity_id VARCHAR(64) NOT NULL,
+    country_code VARCHAR(3) NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE,
+    status VARCHAR(16) NOT NULL,
+    policy_version_id UUID NOT NULL REFERENCES PolicyVersion (policy_version_id)
+);
@@ -0,0 +1,11 @@
+-- Indexes for the hot lookups in TariffRepository
+
+-- getEntityTariff / getEntityTariffs:
+--   WHERE entity_id = ? AND country_code = ? AND status = 'ACTIVE' AND <date window>
+--   ORDER BY level, start_date DESC LIMIT 1
+-- Partial on ACTIVE rules only; the key order matches the ORDER BY so the first matching
+-- entry is the answer, and INCLUDE carries every selected column for an index-only scan.
+CREATE INDEX IF NOT EXISTS idx_tariffrule_active_lookup
+    ON TariffRule (entity_id, country_code, level, start_date DESC)
+    INCLUDE (end_date, status, tariff_id, tariff_rate, policy_version_id)
+    WHERE status = 'ACTIVE';
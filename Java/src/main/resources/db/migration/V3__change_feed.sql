@@ -0,0 +1,113 @@
+-- Change feed consumed by TariffChangeFeed: statement-level triggers record which rules,
+-- policy versions and BOM rows changed, then NOTIFY so the consumer wakes up immediately.
+-- Bulk loads can skip recording with SET LOCAL tariff.change_feed = 'off'.
+
+CREATE TABLE IF NOT EXISTS TariffChange (
+    change_id BIGSERIAL PRIMARY KEY,
+    source VARCHAR(20) NOT NULL,
+    entity_id VARCHAR(64),
+    component_id VARCHAR(64),
+    country_code VARCHAR(3),
+    policy_version_id UUID,
+    changed_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- Reverse BOM lookup: which items contain a changed component
+CREATE INDEX IF NOT EXISTS idx_item_component_component
+    ON Item_Component (component_id, item_id);
+
+-- Affected rules when a policy version changes
+CREATE INDEX IF NOT EXISTS idx_tariffrule_policy_version
+    ON TariffRule (policy_version_id);
+
+CREATE OR REPLACE FUNCTION record_tariff_rule_change() RETURNS trigger AS $$
+BEGIN
+    IF current_setting('tariff.change_feed', true) = 'off' THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO TariffChange (source, entity_id, country_code)
+        SELECT DISTINCT 'TariffRule', entity_id, country_code FROM new_rows;
+    ELSIF TG_OP = 'UPDATE' THEN
+        INSERT INTO TariffChange (source, entity_id, country_code)
+        SELECT 'TariffRule', entity_id, country_code FROM old_rows
+        UNION
+        SELECT 'TariffRule', entity_id, country_code FROM new_rows;
+    ELSE
+        INSERT INTO TariffChange (source, entity_id, country_code)
+        SELECT DISTINCT 'TariffRule', entity_id, country_code FROM old_rows;
+    END IF;
+    PERFORM pg_notify('tariff_change', TG_TABLE_NAME);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION record_policy_version_change() RETURNS trigger AS $$
+BEGIN
+    IF current_setting('tariff.change_feed', true) = 'off' THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO TariffChange (source, policy_version_id)
+        SELECT 'PolicyVersion', policy_version_id FROM old_rows;
+    ELSE
+        INSERT INTO TariffChange (source, policy_version_id)
+        SELECT 'PolicyVersion', policy_version_id FROM new_rows;
+    END IF;
+    PERFORM pg_notify('tariff_change', TG_TABLE_NAME);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION record_item_component_change() RETURNS trigger AS $$
+BEGIN
+    IF current_setting('tariff.change_feed', true) = 'off' THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO TariffChange (source, entity_id, component_id)
+        SELECT 'Item_Component', item_id, component_id FROM new_rows;
+    ELSIF TG_OP = 'UPDATE' THEN
+        INSERT INTO TariffChange (source, entity_id, component_id)
+        SELECT 'Item_Component', item_id, component_id FROM old_rows
+        UNION
+        SELECT 'Item_Component', item_id, component_id FROM new_rows;
+    ELSE
+        INSERT INTO TariffChange (source, entity_id, component_id)
+        SELECT 'Item_Component', item_id, component_id FROM old_rows;
+    END IF;
+    PERFORM pg_notify('tariff_change', TG_TABLE_NAME);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables need one trigger per operation
+CREATE TRIGGER tariff_rule_change_insert AFTER INSERT ON TariffRule
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION record_tariff_rule_change();
+CREATE TRIGGER tariff_rule_change_update AFTER UPDATE ON TariffRule
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION record_tariff_rule_change();
+CREATE TRIGGER tariff_rule_change_delete AFTER DELETE ON TariffRule
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION record_tariff_rule_change();
+
+CREATE TRIGGER policy_version_change_insert AFTER INSERT ON PolicyVersion
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION record_policy_version_change();
+CREATE TRIGGER policy_version_change_update AFTER UPDATE ON PolicyVersion
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION record_policy_version_change();
+CREATE TRIGGER policy_version_change_delete AFTER DELETE ON PolicyVersion
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION record_policy_version_change();
+
+CREATE TRIGGER item_component_change_insert AFTER INSERT ON Item_Component
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION record_item_component_change();
+CREATE TRIGGER item_component_change_update AFTER UPDATE ON Item_Component
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION record_item_component_change();
+CREATE TRIGGER item_component_change_delete AFTER DELETE ON Item_Component
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION record_item_component_change();
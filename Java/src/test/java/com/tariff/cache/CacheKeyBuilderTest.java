@@ -0,0 +1,52 @@
+package com.tariff.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CacheKeyBuilderTest {
+
+    @Test
+    void buildsNamespaceVersionGenerationAndArguments() {
+        assertEquals("calculatedTariff:v1:g7:ITEM1:USA", CacheKeyBuilder.build("calculatedTariff", 1, 7, "ITEM1", "USA"));
+        assertEquals("bom:v2:g0", CacheKeyBuilder.build("bom", 2, 0));
+        assertEquals("tariff:v1:g3:42:1.5", CacheKeyBuilder.build("tariff", 1, 3, 42, 1.5));
+    }
+
+    @Test
+    void escapesSeparatorsInsideArguments() {
+        assertEquals("tariff:v1:g0:a\\:b", CacheKeyBuilder.build("tariff", 1, 0, "a:b"));
+        assertEquals("tariff:v1:g0:a\\\\b", CacheKeyBuilder.build("tariff", 1, 0, "a\\b"));
+    }
+
+    @Test
+    void differentArgumentListsNeverCollide() {
+        assertNotEquals(CacheKeyBuilder.build("tariff", 1, 0, "a:b"), CacheKeyBuilder.build("tariff", 1, 0, "a", "b"));
+        assertNotEquals(CacheKeyBuilder.build("tariff", 1, 0, "a\\", "b"), CacheKeyBuilder.build("tariff", 1, 0, "a\\:b"));
+        assertNotEquals(CacheKeyBuilder.build("tariff", 1, 0, ""), CacheKeyBuilder.build("tariff", 1, 0));
+    }
+
+    @Test
+    void nullIsDistinctFromTheStringNull() {
+        String nullKey = CacheKeyBuilder.build("tariff", 1, 0, "ITEM1", null);
+
+        assertEquals("tariff:v1:g0:ITEM1:\\N", nullKey);
+        assertNotEquals(nullKey, CacheKeyBuilder.build("tariff", 1, 0, "ITEM1", "null"));
+        assertNotEquals(nullKey, CacheKeyBuilder.build("tariff", 1, 0, "ITEM1", "\\N"));
+        assertNotEquals(nullKey, CacheKeyBuilder.build("tariff", 1, 0, "ITEM1", "N"));
+    }
+
+    @Test
+    void versionAndGenerationSeparateKeys() {
+        assertNotEquals(CacheKeyBuilder.build("bom", 1, 0, "ITEM1"), CacheKeyBuilder.build("bom", 2, 0, "ITEM1"));
+        assertNotEquals(CacheKeyBuilder.build("bom", 1, 0, "ITEM1"), CacheKeyBuilder.build("bom", 1, 1, "ITEM1"));
+    }
+
+    @Test
+    void reusesTheBufferWithoutLeakingPreviousKeys() {
+        CacheKeyBuilder.build("calculatedTariff", 1, 0, "A_LONG_ITEM_IDENTIFIER", "USA");
+
+        assertEquals("bom:v1:g0:X", CacheKeyBuilder.build("bom", 1, 0, "X"));
+    }
+}
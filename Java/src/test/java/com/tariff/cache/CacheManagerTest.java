@@ -0,0 +1,344 @@
+package com.tariff.cache;
+
+import com.tariff.config.DatabaseConfig;
+import com.tariff.connection.ConnectionPool;
+import com.tariff.enums.CacheNamespace;
+import com.tariff.model.Component;
+import com.tariff.model.TariffRate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheManagerTest {
+    private ConnectionPool connectionPool;
+    private JedisPool jedisPool;
+    private Jedis jedis;
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        connectionPool = mock(ConnectionPool.class);
+        jedisPool = mock(JedisPool.class);
+        jedis = mock(Jedis.class);
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(connectionPool.getJedisPool(anyString())).thenReturn(jedisPool);
+        when(connectionPool.getJedisPools()).thenReturn(Collections.singletonList(jedisPool));
+        cacheManager = new CacheManager(connectionPool, new DatabaseConfig());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.close();
+    }
+
+    @Test
+    void getAllWithNoKeysSkipsRedis() {
+        assertTrue(cacheManager.getAll(Collections.emptyList(), TariffRate.class).isEmpty());
+        verify(connectionPool, never()).getJedisPools();
+    }
+
+    @Test
+    void getAllReturnsOnlyTheHits() {
+        when(jedis.mget(any(String[].class))).thenReturn(Arrays.asList(
+                "{\"tariffId\":\"t1\",\"tariffRate\":2.5,\"entityId\":\"ITEM1\",\"countryCode\":\"USA\"}",
+                null));
+
+        Map<String, TariffRate> hits = cacheManager.getAll(Arrays.asList("tariff:a", "tariff:b"), TariffRate.class);
+
+        assertEquals(1, hits.size());
+        assertEquals(2.5, hits.get("tariff:a").getTariffRate());
+        assertFalse(hits.containsKey("tariff:b"));
+        assertEquals(1, cacheManager.getHitCount());
+        assertEquals(1, cacheManager.getMissCount());
+        assertEquals(1, cacheManager.getHitCount(CacheNamespace.TARIFF));
+        assertEquals(0, cacheManager.getHitCount(CacheNamespace.BOM));
+    }
+
+    @Test
+    void getAllGroupsKeysByShard() {
+        JedisPool second = mock(JedisPool.class);
+        Jedis secondJedis = mock(Jedis.class);
+        when(second.getResource()).thenReturn(secondJedis);
+        when(connectionPool.getJedisPools()).thenReturn(Arrays.asList(jedisPool, second));
+        when(connectionPool.getShardIndex("tariff:a")).thenReturn(0);
+        when(connectionPool.getShardIndex("tariff:b")).thenReturn(1);
+        when(jedis.mget("tariff:a")).thenReturn(Collections.singletonList("{\"tariffRate\":1.0}"));
+        when(secondJedis.mget("tariff:b")).thenReturn(Collections.singletonList("{\"tariffRate\":2.0}"));
+
+        Map<String, TariffRate> hits = cacheManager.getAll(Arrays.asList("tariff:a", "tariff:b"), TariffRate.class);
+
+        assertEquals(1.0, hits.get("tariff:a").getTariffRate());
+        assertEquals(2.0, hits.get("tariff:b").getTariffRate());
+    }
+
+    @Test
+    void concurrentFanOutsOverlapAcrossCallersAndShards() throws Exception {
+        int shards = 3;
+        int callers = 4;
+        // Every shard call of every caller has to be in flight at once for the latch to open
+        CountDownLatch allInFlight = new CountDownLatch(shards * callers);
+        List<JedisPool> pools = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            JedisPool pool = mock(JedisPool.class);
+            Jedis shardJedis = mock(Jedis.class);
+            when(pool.getResource()).thenReturn(shardJedis);
+            when(shardJedis.mget(any(String[].class))).thenAnswer(invocation -> {
+                allInFlight.countDown();
+                if (!allInFlight.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("shard calls did not overlap");
+                }
+                return Collections.singletonList("{\"tariffRate\":1.0}");
+            });
+            pools.add(pool);
+            when(connectionPool.getShardIndex("tariff:" + shard)).thenReturn(shard);
+        }
+        when(connectionPool.getJedisPools()).thenReturn(pools);
+        List<String> keys = Arrays.asList("tariff:0", "tariff:1", "tariff:2");
+
+        ExecutorService callerThreads = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Map<String, TariffRate>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(callerThreads.submit(() -> cacheManager.getAll(keys, TariffRate.class)));
+            }
+            for (Future<Map<String, TariffRate>> result : results) {
+                assertEquals(3, result.get(15, TimeUnit.SECONDS).size());
+            }
+        } finally {
+            callerThreads.shutdownNow();
+        }
+    }
+
+    @Test
+    void getAllTreatsRedisErrorsAsMisses() {
+        when(jedis.mget(any(String[].class))).thenThrow(new RuntimeException("connection refused"));
+
+        assertTrue(cacheManager.getAll(Arrays.asList("tariff:a"), TariffRate.class).isEmpty());
+        assertEquals(1, cacheManager.getMissCount());
+    }
+
+    @Test
+    void getListDeserializesElements() {
+        when(jedis.get("bom:ITEM1")).thenReturn(
+                "[{\"componentId\":\"C1\",\"description\":\"Steel\",\"materialType\":\"METAL\"}]");
+
+        List<Component> bom = cacheManager.getList("bom:ITEM1", Component.class);
+
+        assertEquals(1, bom.size());
+        assertEquals("C1", bom.get(0).getComponentId());
+    }
+
+    @Test
+    void getListMissReturnsNull() {
+        assertNull(cacheManager.getList("bom:ITEM1", Component.class));
+        assertEquals(1, cacheManager.getMissCount());
+    }
+
+    @Test
+    void unknownGenerationIsRetriedOncePerIntervalAndBypassesTheCache() {
+        when(jedis.get("generation:bom")).thenThrow(new RuntimeException("connection refused"));
+
+        String first = cacheManager.generateCacheKey(CacheNamespace.BOM, "ITEM1");
+        String second = cacheManager.generateCacheKey(CacheNamespace.BOM, "ITEM2");
+
+        assertEquals("bom:v1:g-1:ITEM1", first);
+        assertEquals("bom:v1:g-1:ITEM2", second);
+        verify(jedis, times(1)).get("generation:bom");
+        assertNull(cacheManager.getList(first, Component.class));
+        cacheManager.set(first, Collections.emptyList(), 60);
+        verify(jedis, never()).get(first);
+        verify(jedis, never()).pipelined();
+        assertEquals(1, cacheManager.getMissCount(CacheNamespace.BOM));
+    }
+
+    @Test
+    void knownGenerationIsServedFromMemory() {
+        when(jedis.get("generation:tariff")).thenReturn("4");
+
+        assertEquals("tariff:v1:g4:ITEM1:USA", cacheManager.generateCacheKey(CacheNamespace.TARIFF, "ITEM1", "USA"));
+        assertEquals("tariff:v1:g4:ITEM2:USA", cacheManager.generateCacheKey(CacheNamespace.TARIFF, "ITEM2", "USA"));
+        verify(jedis, times(1)).get("generation:tariff");
+    }
+
+    @Test
+    void refreshRacingALocalBumpDoesNotMoveTheGenerationBack() {
+        when(jedis.incr("generation:tariff")).thenReturn(5L);
+        // The refresh reads 4 from Redis, then a bump to 5 lands before it stores what it read
+        when(jedis.get("generation:tariff")).thenAnswer(invocation -> {
+            cacheManager.bumpGeneration(CacheNamespace.TARIFF);
+            return "4";
+        });
+
+        assertEquals("tariff:v1:g5:ITEM1:USA", cacheManager.generateCacheKey(CacheNamespace.TARIFF, "ITEM1", "USA"));
+        assertEquals("tariff:v1:g5:ITEM2:USA", cacheManager.generateCacheKey(CacheNamespace.TARIFF, "ITEM2", "USA"));
+    }
+
+    @Test
+    void bumpAfterTheCounterWasLostStillMovesForward() {
+        when(jedis.get("generation:tariff")).thenReturn("7");
+        cacheManager.generateCacheKey(CacheNamespace.TARIFF, "ITEM1", "USA");
+        when(jedis.incr("generation:tariff")).thenReturn(1L);
+        when(jedis.incrBy("generation:tariff", 7L)).thenReturn(8L);
+
+        assertEquals(8L, cacheManager.bumpGeneration(CacheNamespace.TARIFF));
+        assertEquals("tariff:v1:g8:ITEM1:USA", cacheManager.generateCacheKey(CacheNamespace.TARIFF, "ITEM1", "USA"));
+    }
+
+    @Test
+    void getAllSkipsKeysWithUnknownGeneration() {
+        when(jedis.mget("tariff:v1:g2:a")).thenReturn(Collections.singletonList("{\"tariffRate\":1.0}"));
+
+        Map<String, TariffRate> hits = cacheManager.getAll(
+                Arrays.asList("tariff:v1:g-1:a", "tariff:v1:g2:a"), TariffRate.class);
+
+        assertEquals(1, hits.size());
+        assertEquals(1, cacheManager.getMissCount(CacheNamespace.TARIFF));
+    }
+
+    @Test
+    void setAllWithNoValuesSkipsRedis() {
+        assertTrue(cacheManager.setAll(Collections.emptyMap(), 60));
+        verify(connectionPool, never()).getJedisPools();
+    }
+
+    @Test
+    void setAllWritesEveryKeyInOnePipeline() {
+        Pipeline pipeline = pipelineReturning(1L);
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("tariff:a", new TariffRate());
+        values.put("tariff:b", new TariffRate());
+
+        assertTrue(cacheManager.setAll(values, 60, 42L));
+
+        verify(pipeline).evalsha(anyString(), eq(Collections.singletonList("tariff:a")),
+                argThat(args -> args.get(0).equals("42") && args.get(2).equals("60")));
+        verify(pipeline).evalsha(anyString(), eq(Collections.singletonList("tariff:b")), anyList());
+        verify(pipeline).sync();
+    }
+
+    @Test
+    void writeRejectedForANewerVersionIsNotAFailure() {
+        pipelineReturning(0L);
+
+        assertTrue(cacheManager.setAll(Collections.singletonMap("tariff:a", new TariffRate()), 60, 1L));
+    }
+
+    @Test
+    void missingScriptIsLoadedAndTheBatchResent() {
+        Pipeline pipeline = mock(Pipeline.class);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        Response<Object> missing = response(null);
+        when(missing.get()).thenThrow(new JedisNoScriptException("NOSCRIPT No matching script"));
+        Response<Object> accepted = response(1L);
+        when(pipeline.evalsha(anyString(), anyList(), anyList())).thenReturn(missing, accepted);
+
+        cacheManager.set("tariff:a", new TariffRate(), 60, 3L);
+
+        verify(jedis).scriptLoad(anyString());
+        verify(pipeline, times(2)).evalsha(anyString(), anyList(), anyList());
+    }
+
+    @Test
+    void versionPrefixIsStrippedOnRead() {
+        when(jedis.get("tariff:a")).thenReturn("17:{\"tariffRate\":3.0}");
+        when(jedis.mget("tariff:b")).thenReturn(Collections.singletonList("17:{\"tariffRate\":4.0}"));
+
+        assertEquals(3.0, cacheManager.get("tariff:a", TariffRate.class).getTariffRate());
+        assertEquals(4.0, cacheManager.getAll(Arrays.asList("tariff:b"), TariffRate.class)
+                .get("tariff:b").getTariffRate());
+    }
+
+    @Test
+    void cachedAbsenceIsAHitButNotAValue() {
+        when(jedis.get("tariff:a")).thenReturn("17:null");
+
+        assertEquals(Optional.empty(), cacheManager.getOptional("tariff:a", TariffRate.class));
+        assertNull(cacheManager.getOptional("tariff:b", TariffRate.class));
+        assertNull(cacheManager.get("tariff:a", TariffRate.class));
+        assertEquals(2, cacheManager.getHitCount(CacheNamespace.TARIFF));
+        assertEquals(1, cacheManager.getMissCount(CacheNamespace.TARIFF));
+    }
+
+    @Test
+    void readDataVersionRaisesTheReplicaFloorFirst() {
+        when(jedis.get("changefeed:position")).thenReturn("201:100");
+
+        assertEquals(200L, cacheManager.readDataVersion());
+        assertEquals(200L, cacheManager.readDataVersion());
+
+        verify(connectionPool).requireReplayLsn(100L);
+        verify(jedis, times(1)).get("changefeed:position");
+    }
+
+    @Test
+    void unpublishedDataVersionIsZero() {
+        assertEquals(0L, cacheManager.readDataVersion());
+    }
+
+    @Test
+    void publishedVersionBeatsReadersAtTheSamePosition() {
+        Pipeline pipeline = pipelineReturning(1L);
+
+        long version = cacheManager.publishDataVersion(100L);
+
+        assertEquals(201L, version);
+        verify(pipeline).evalsha(anyString(), eq(Collections.singletonList("changefeed:position")),
+                eq(Arrays.asList("201", "100", "7200")));
+        verify(connectionPool).requireReplayLsn(100L);
+    }
+
+    @Test
+    void setAllReportsFailure() {
+        when(jedis.pipelined()).thenThrow(new RuntimeException("connection refused"));
+
+        assertFalse(cacheManager.setAll(Collections.singletonMap("tariff:a", new TariffRate()), 60));
+    }
+
+    private Pipeline pipelineReturning(Object result) {
+        Pipeline pipeline = mock(Pipeline.class);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        Response<Object> response = response(result);
+        when(pipeline.evalsha(anyString(), anyList(), anyList())).thenReturn(response);
+        return pipeline;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Response<Object> response(Object result) {
+        Response<Object> response = mock(Response.class);
+        when(response.get()).thenReturn(result);
+        return response;
+    }
+}
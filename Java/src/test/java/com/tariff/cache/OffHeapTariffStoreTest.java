@@ -0,0 +1,231 @@
+package com.tariff.cache;
+
+import com.tariff.enums.TariffCombinationPolicy;
+import com.tariff.model.CombinedTariff;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapTariffStoreTest {
+    private static final long GENERATION = 3;
+
+    @Test
+    void storedEntryRoundTripsExactly() throws IOException {
+        OffHeapTariffStore store = new OffHeapTariffStore(64, 4, 256, null);
+        CombinedTariff tariff = new CombinedTariff("ITEM1", "USA", new BigDecimal("2.50"), new BigDecimal("0.125"),
+                new BigDecimal("2.625"), TariffCombinationPolicy.MAXIMUM, Arrays.asList("C1", "C2"),
+                LocalDateTime.of(2026, 1, 2, 3, 4, 5, 6000));
+
+        assertTrue(store.put(tariff, GENERATION, farFuture()));
+        CombinedTariff stored = store.get("ITEM1", "USA", GENERATION);
+
+        assertEquals(new BigDecimal("2.50"), stored.getItemTariffRate());
+        assertEquals(new BigDecimal("0.125"), stored.getComponentTariffRate());
+        assertEquals(new BigDecimal("2.625"), stored.getFinalTariffRate());
+        assertEquals(TariffCombinationPolicy.MAXIMUM, stored.getCombinationPolicy());
+        assertEquals(Arrays.asList("C1", "C2"), stored.getComponentsUsed());
+        assertEquals(tariff.getCalculationTimestamp(), stored.getCalculationTimestamp());
+        assertNull(store.get("ITEM1", "DEU", GENERATION));
+    }
+
+    @Test
+    void entryFromAnotherGenerationIsAMiss() throws IOException {
+        OffHeapTariffStore store = new OffHeapTariffStore(64, 4, 256, null);
+        store.put(tariff("ITEM1", Collections.emptyList()), GENERATION, farFuture());
+
+        assertNull(store.get("ITEM1", "USA", GENERATION + 1));
+        assertNotNull(store.get("ITEM1", "USA", GENERATION));
+    }
+
+    @Test
+    void expiredEntryIsAMiss() throws IOException {
+        OffHeapTariffStore store = new OffHeapTariffStore(64, 4, 256, null);
+        store.put(tariff("ITEM1", Collections.emptyList()), GENERATION, System.currentTimeMillis() - 1);
+
+        assertNull(store.get("ITEM1", "USA", GENERATION));
+    }
+
+    @Test
+    void valueThatNoLongerFitsExpiresTheStoredOne() throws IOException {
+        OffHeapTariffStore store = new OffHeapTariffStore(64, 4, 128, null);
+        assertTrue(store.put(tariff("ITEM1", Collections.singletonList("C1")), GENERATION, farFuture()));
+
+        List<String> components = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            components.add("COMPONENT-" + i);
+        }
+        assertFalse(store.put(tariff("ITEM1", components), GENERATION, farFuture()));
+
+        assertNull(store.get("ITEM1", "USA", GENERATION));
+    }
+
+    @Test
+    void clockEvictionKeepsEveryLiveEntryReachable() throws IOException {
+        // One segment of 8 records with a 16-slot index, so keys collide and evictions shift probe chains
+        OffHeapTariffStore store = new OffHeapTariffStore(8, 1, 256, null);
+        int keys = 200;
+        for (int i = 0; i < keys; i++) {
+            store.put(tariff("ITEM" + i, Collections.emptyList()), GENERATION, farFuture());
+            assertNotNull(store.get("ITEM" + i, "USA", GENERATION), "just stored ITEM" + i);
+        }
+
+        int reachable = 0;
+        for (int i = 0; i < keys; i++) {
+            if (store.get("ITEM" + i, "USA", GENERATION) != null) {
+                reachable++;
+            }
+        }
+        assertEquals(store.capacity(), reachable);
+        assertEquals(store.capacity(), store.size());
+        assertEquals(keys - store.capacity(), store.getEvictionCount());
+    }
+
+    @Test
+    void clockGivesRecentlyReadEntriesASecondChance() throws IOException {
+        OffHeapTariffStore store = new OffHeapTariffStore(4, 1, 256, null);
+        for (int i = 0; i < 4; i++) {
+            store.put(tariff("ITEM" + i, Collections.emptyList()), GENERATION, farFuture());
+        }
+        // Every record is referenced, so the hand clears them all and evicts the first
+        store.put(tariff("ITEM4", Collections.emptyList()), GENERATION, farFuture());
+        assertNull(store.get("ITEM0", "USA", GENERATION));
+
+        // ITEM1 is read again and survives the next eviction; ITEM2 is not
+        assertNotNull(store.get("ITEM1", "USA", GENERATION));
+        store.put(tariff("ITEM5", Collections.emptyList()), GENERATION, farFuture());
+
+        assertNull(store.get("ITEM2", "USA", GENERATION));
+        assertNotNull(store.get("ITEM1", "USA", GENERATION));
+        assertNotNull(store.get("ITEM3", "USA", GENERATION));
+        assertNotNull(store.get("ITEM5", "USA", GENERATION));
+    }
+
+    @Test
+    void removedEntryIsAMissUntilStoredAgain() throws IOException {
+        OffHeapTariffStore store = new OffHeapTariffStore(64, 4, 256, null);
+        store.put(tariff("ITEM1", Collections.emptyList()), GENERATION, farFuture());
+
+        assertTrue(store.remove("ITEM1", "USA"));
+        assertNull(store.get("ITEM1", "USA", GENERATION));
+        assertFalse(store.remove("ITEM2", "USA"));
+
+        store.put(tariff("ITEM1", Collections.emptyList()), GENERATION, farFuture());
+        assertNotNull(store.get("ITEM1", "USA", GENERATION));
+    }
+
+    @Test
+    void concurrentReadersNeverSeeATornRecord() throws Exception {
+        // Few records per segment and more keys than records, so writes also evict and shift probe chains
+        OffHeapTariffStore store = new OffHeapTariffStore(64, 2, 256, null);
+        String[] countries = {"USA", "DEU"};
+        int keys = 48;
+        int threads = 8;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        CountDownLatch start = new CountDownLatch(1);
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        LongAdder hits = new LongAdder();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                boolean writer = t % 2 == 0;
+                long seed = t;
+                workers.add(executor.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    start.await();
+                    while (System.nanoTime() < deadline && failures.isEmpty()) {
+                        String itemId = "ITEM" + random.nextInt(keys);
+                        String country = countries[random.nextInt(countries.length)];
+                        if (writer) {
+                            if (random.nextInt(10) == 0) {
+                                store.remove(itemId, country);
+                            } else {
+                                store.put(stamped(itemId, country, random.nextInt(1, 1_000_000)), GENERATION,
+                                        farFuture());
+                            }
+                            continue;
+                        }
+                        CombinedTariff stored = store.get(itemId, country, GENERATION);
+                        if (stored != null) {
+                            hits.increment();
+                            String problem = mismatch(stored, itemId, country);
+                            if (problem != null) {
+                                failures.add(problem);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(failures.isEmpty(), String.join("; ", failures));
+        assertTrue(hits.sum() > 0, "readers never found an entry");
+    }
+
+    // Every field is derived from n, so a record mixing two writes fails the comparison
+    private static CombinedTariff stamped(String itemId, String country, int n) {
+        List<String> components = new ArrayList<>();
+        for (int i = 0; i < n % 4; i++) {
+            components.add("C" + n + "-" + i);
+        }
+        return new CombinedTariff(itemId, country, BigDecimal.valueOf(n, 2), BigDecimal.valueOf(n, 4),
+                BigDecimal.valueOf(2L * n), TariffCombinationPolicy.values()[n % TariffCombinationPolicy.values().length],
+                components, LocalDateTime.ofEpochSecond(n, n, ZoneOffset.UTC));
+    }
+
+    private static String mismatch(CombinedTariff stored, String itemId, String country) {
+        if (!itemId.equals(stored.getItemId()) || !country.equals(stored.getCountryCode())) {
+            return "asked for " + itemId + "/" + country + ", got " + stored.getItemId() + "/" + stored.getCountryCode();
+        }
+        int n = stored.getItemTariffRate().unscaledValue().intValue();
+        CombinedTariff expected = stamped(itemId, country, n);
+        if (!expected.getItemTariffRate().equals(stored.getItemTariffRate())
+                || !expected.getComponentTariffRate().equals(stored.getComponentTariffRate())
+                || !expected.getFinalTariffRate().equals(stored.getFinalTariffRate())
+                || expected.getCombinationPolicy() != stored.getCombinationPolicy()
+                || !expected.getComponentsUsed().equals(stored.getComponentsUsed())
+                || !expected.getCalculationTimestamp().equals(stored.getCalculationTimestamp())) {
+            return "torn record for " + itemId + "/" + country + " at n=" + n;
+        }
+        return null;
+    }
+
+    private static CombinedTariff tariff(String itemId, List<String> components) {
+        return new CombinedTariff(itemId, "USA", BigDecimal.ONE, BigDecimal.ZERO, BigDecimal.ONE,
+                TariffCombinationPolicy.ADDITIVE, components, null);
+    }
+
+    private static long farFuture() {
+        return System.currentTimeMillis() + 60_000;
+    }
+}
@@ -0,0 +1,105 @@
+package com.tariff.connection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+    private static final int KEYS = 100_000;
+    private static final int VIRTUAL_NODES = 160;
+
+    @Test
+    void rejectsEmptyRing() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(Collections.emptyList(), 160));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of("a:6379"), 0));
+    }
+
+    @Test
+    void singleNodeOwnsEverything() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a:6379"), VIRTUAL_NODES);
+
+        assertEquals(0, ring.nodeFor("calculatedTariff:v1:g0:ITEM1:USA"));
+    }
+
+    @Test
+    void spreadsKeysEvenly() {
+        List<String> nodes = nodes(4);
+        ConsistentHashRing ring = new ConsistentHashRing(nodes, VIRTUAL_NODES);
+
+        int[] counts = new int[nodes.size()];
+        for (int i = 0; i < KEYS; i++) {
+            counts[ring.nodeFor(key(i))]++;
+        }
+
+        double mean = (double) KEYS / nodes.size();
+        for (int count : counts) {
+            assertTrue(Math.abs(count - mean) / mean < 0.2, "uneven spread: " + Arrays.toString(counts));
+        }
+    }
+
+    @Test
+    void addingANodeOnlyMovesKeysOntoIt() {
+        List<String> before = nodes(4);
+        List<String> after = nodes(5);
+        ConsistentHashRing oldRing = new ConsistentHashRing(before, VIRTUAL_NODES);
+        ConsistentHashRing newRing = new ConsistentHashRing(after, VIRTUAL_NODES);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String oldOwner = before.get(oldRing.nodeFor(key(i)));
+            String newOwner = after.get(newRing.nodeFor(key(i)));
+            if (!oldOwner.equals(newOwner)) {
+                assertEquals(after.get(4), newOwner);
+                moved++;
+            }
+        }
+
+        assertMovedAbout(moved, 1.0 / after.size());
+    }
+
+    @Test
+    void removingANodeOnlyMovesItsKeys() {
+        List<String> before = nodes(5);
+        List<String> after = new ArrayList<>(before);
+        String removed = after.remove(2);
+        ConsistentHashRing oldRing = new ConsistentHashRing(before, VIRTUAL_NODES);
+        ConsistentHashRing newRing = new ConsistentHashRing(after, VIRTUAL_NODES);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String oldOwner = before.get(oldRing.nodeFor(key(i)));
+            String newOwner = after.get(newRing.nodeFor(key(i)));
+            if (!oldOwner.equals(newOwner)) {
+                assertEquals(removed, oldOwner);
+                moved++;
+            }
+        }
+
+        assertMovedAbout(moved, 1.0 / before.size());
+    }
+
+    private static void assertMovedAbout(int moved, double expectedFraction) {
+        double fraction = (double) moved / KEYS;
+        assertTrue(Math.abs(fraction - expectedFraction) < expectedFraction * 0.25,
+                "moved " + fraction + ", expected about " + expectedFraction);
+    }
+
+    private static List<String> nodes(int count) {
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add("redis-" + i + ":6379");
+        }
+        return nodes;
+    }
+
+    private static String key(int i) {
+        return "calculatedTariff:v1:g0:ITEM" + i + ":USA";
+    }
+}
@@ -0,0 +1,134 @@
+package com.tariff.connection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaDataSourceTest {
+    private HikariDataSource dataSource;
+    private ResultSet resultSet;
+    private ReplicaDataSource replica;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = mock(HikariDataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        resultSet = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean("in_recovery")).thenReturn(true);
+        when(resultSet.getBoolean("has_receiver")).thenReturn(true);
+        when(resultSet.getString("receiver_status")).thenReturn("streaming");
+        when(resultSet.getLong("receipt_age_ms")).thenReturn(200L);
+        when(resultSet.getLong("receiver_timeout_ms")).thenReturn(60_000L);
+        replica = new ReplicaDataSource("replica-1", dataSource);
+    }
+
+    @Test
+    void streamingReplicaIsUsable() throws SQLException {
+        when(resultSet.getLong("lag_ms")).thenReturn(0L);
+
+        replica.refresh();
+
+        assertTrue(replica.isUsable(5000));
+        assertEquals(0, replica.getLagMillis());
+    }
+
+    @Test
+    void replicaBehindTheReplayFloorIsNotUsable() throws SQLException {
+        when(resultSet.getLong("lag_ms")).thenReturn(0L);
+        when(resultSet.getLong("replay_lsn")).thenReturn(1000L);
+
+        replica.refresh();
+
+        assertEquals(1000L, replica.getReplayLsn());
+        assertTrue(replica.isUsable(5000, 1000L));
+        assertFalse(replica.isUsable(5000, 1001L));
+    }
+
+    @Test
+    void laggingReplicaIsHealthyButNotUsable() throws SQLException {
+        when(resultSet.getLong("lag_ms")).thenReturn(8000L);
+
+        replica.refresh();
+
+        assertTrue(replica.isHealthy());
+        assertFalse(replica.isUsable(5000));
+    }
+
+    @Test
+    void missingReceiverIsUnhealthy() throws SQLException {
+        when(resultSet.getBoolean("has_receiver")).thenReturn(false);
+
+        replica.refresh();
+
+        assertFalse(replica.isHealthy());
+        assertFalse(replica.isUsable(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    void receiverThatStoppedStreamingIsUnhealthy() throws SQLException {
+        when(resultSet.getString("receiver_status")).thenReturn("waiting");
+
+        replica.refresh();
+
+        assertFalse(replica.isHealthy());
+    }
+
+    @Test
+    void silentReceiverIsUnhealthy() throws SQLException {
+        when(resultSet.getLong("receipt_age_ms")).thenReturn(90_000L);
+
+        replica.refresh();
+
+        assertFalse(replica.isHealthy());
+    }
+
+    @Test
+    void hiddenReceiverStatusFallsBackToReplayLag() throws SQLException {
+        when(resultSet.getString("receiver_status")).thenReturn(null);
+        when(resultSet.getLong("lag_ms")).thenReturn(100L);
+
+        replica.refresh();
+
+        assertTrue(replica.isUsable(5000));
+    }
+
+    @Test
+    void promotedReplicaIsUnhealthy() throws SQLException {
+        when(resultSet.getLong("lag_ms")).thenReturn(0L);
+        replica.refresh();
+        assertTrue(replica.isHealthy());
+
+        when(resultSet.getBoolean("in_recovery")).thenReturn(false);
+        replica.refresh();
+
+        assertFalse(replica.isHealthy());
+        assertFalse(replica.isUsable(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    void failedCheckIsUnhealthy() throws SQLException {
+        replica.refresh();
+        when(dataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        replica.refresh();
+
+        assertFalse(replica.isHealthy());
+    }
+}
@@ -0,0 +1,88 @@
+package com.tariff.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0.0, histogram.getMeanMicros());
+        assertEquals(0, histogram.percentileMicros(0.99));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 50; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(50, histogram.getCount());
+        assertEquals(25.5, histogram.getMeanMicros());
+        assertEquals(25, histogram.percentileMicros(0.50));
+        assertEquals(50, histogram.percentileMicros(1.0));
+        assertEquals(50, histogram.getMaxMicros());
+    }
+
+    @Test
+    void negativeValuesCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.percentileMicros(0.5));
+    }
+
+    @Test
+    void percentilesStayWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        SplittableRandom random = new SplittableRandom(42);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Spread over six orders of magnitude
+            values[i] = (long) Math.pow(10, random.nextDouble() * 6);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double quantile : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+            long reported = histogram.percentileMicros(quantile);
+            // Reported value is the upper bound of the bucket holding the exact value
+            assertTrue(reported >= exact, quantile + ": " + reported + " < " + exact);
+            assertTrue(reported <= exact * 1.035 + 1, quantile + ": " + reported + " vs " + exact);
+        }
+    }
+
+    @Test
+    void neverReportsMoreThanTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_001);
+
+        assertEquals(1_000_001, histogram.percentileMicros(0.99));
+    }
+
+    @Test
+    void concurrentRecordsAreAllCounted() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        IntStream.range(0, 8).parallel().forEach(t -> {
+            for (int i = 0; i < 10_000; i++) {
+                histogram.record(i);
+            }
+        });
+
+        assertEquals(80_000, histogram.getCount());
+        assertEquals(9_999, histogram.getMaxMicros());
+    }
+}
@@ -0,0 +1,109 @@
+package com.tariff.repository;
+
+import com.tariff.connection.ConnectionPool;
+import com.tariff.model.TariffChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TariffChangeRepositoryTest {
+    private Connection connection;
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+    private TariffChangeRepository repository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ConnectionPool connectionPool = mock(ConnectionPool.class);
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        resultSet = mock(ResultSet.class);
+        when(connectionPool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(TariffChangeRepository.AFFECTED_ITEMS_QUERY)).thenReturn(statement);
+        when(connection.createArrayOf(anyString(), any())).thenReturn(mock(Array.class));
+        when(statement.executeQuery()).thenReturn(resultSet);
+        repository = new TariffChangeRepository(connectionPool);
+    }
+
+    @Test
+    void bomChangeIsResolvedThroughItemComponent() throws Exception {
+        // Adding C7 to ITEM1: a row with no country for the cached BOM, one per country C7 has a rule in
+        rows(new String[] {"ITEM1", null}, new String[] {"ITEM1", "DEU"}, new String[] {"ITEM1", "USA"});
+        List<Map<String, Set<String>>> chunks = new ArrayList<>();
+
+        assertTrue(repository.resolveAffectedItems(
+                List.of(change(1, "Item_Component", "ITEM1", "C7", null)), 10, chunks::add));
+
+        verify(connection).createArrayOf(eq("varchar"), eq(new Object[] {"ITEM1"}));
+        verify(connection).createArrayOf(eq("varchar"), eq(new Object[] {"C7"}));
+        assertEquals(List.of(Map.of("ITEM1", Set.of("DEU", "USA"))), chunks);
+    }
+
+    @Test
+    void itemsAreStreamedInChunksWithoutSplittingAnItem() throws Exception {
+        // A rule change on a component shared by three items, rows ordered by item
+        rows(new String[] {"ITEM1", "USA"}, new String[] {"ITEM1", "DEU"}, new String[] {"ITEM2", "USA"},
+                new String[] {"ITEM3", "USA"}, new String[] {"ITEM3", "DEU"});
+        List<Map<String, Set<String>>> chunks = new ArrayList<>();
+
+        assertTrue(repository.resolveAffectedItems(
+                List.of(change(1, "TariffRule", "C1", null, "USA")), 2, chunks::add));
+
+        assertEquals(2, chunks.size());
+        assertEquals(Map.of("ITEM1", Set.of("DEU", "USA"), "ITEM2", Set.of("USA")), chunks.get(0));
+        assertEquals(Map.of("ITEM3", Set.of("DEU", "USA")), chunks.get(1));
+        // Rows come through a cursor, which pgjdbc only uses inside a transaction
+        InOrder order = inOrder(connection, statement);
+        order.verify(connection).setAutoCommit(false);
+        order.verify(statement).setFetchSize(anyInt());
+        order.verify(statement).executeQuery();
+        order.verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    void stopsAtTheFirstChunkThatWasNotWritten() throws Exception {
+        rows(new String[] {"ITEM1", "USA"}, new String[] {"ITEM2", "USA"}, new String[] {"ITEM3", "USA"});
+        List<Map<String, Set<String>>> chunks = new ArrayList<>();
+
+        boolean written = repository.resolveAffectedItems(List.of(change(1, "TariffRule", "C1", null, "USA")), 1,
+                chunk -> chunks.add(chunk) && chunks.size() < 2);
+
+        assertFalse(written);
+        assertEquals(List.of(Map.of("ITEM1", Set.of("USA")), Map.of("ITEM2", Set.of("USA"))), chunks);
+    }
+
+    // Each row is {item_id, country_code}
+    private void rows(String[]... rows) throws Exception {
+        int[] row = {-1};
+        when(resultSet.next()).thenAnswer(invocation -> ++row[0] < rows.length);
+        when(resultSet.getString(1)).thenAnswer(invocation -> rows[row[0]][0]);
+        when(resultSet.getString(2)).thenAnswer(invocation -> rows[row[0]][1]);
+    }
+
+    private static TariffChange change(long id, String source, String entityId, String componentId,
+                                       String country) {
+        return new TariffChange(id, source, entityId, componentId, country, null, OffsetDateTime.now());
+    }
+}
@@ -0,0 +1,106 @@
+package com.tariff.repository;
+
+import com.tariff.connection.ConnectionPool;
+import com.tariff.model.TariffRate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TariffRepositoryTest {
+    private ConnectionPool connectionPool;
+    private Connection connection;
+    private ResultSet resultSet;
+    private TariffRepository repository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connectionPool = mock(ConnectionPool.class);
+        connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        resultSet = mock(ResultSet.class);
+        when(connectionPool.getReadConnection()).thenReturn(connection);
+        when(connection.prepareStatement(TariffRepository.ENTITY_TARIFFS_QUERY)).thenReturn(statement);
+        when(connection.createArrayOf(anyString(), any())).thenReturn(mock(Array.class));
+        when(statement.executeQuery()).thenReturn(resultSet);
+        repository = new TariffRepository(connectionPool);
+    }
+
+    @Test
+    void rejectsEmptyInputWithoutQuerying() {
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.getEntityTariffs(Collections.emptyList(), Collections.singletonList("USA")));
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.getEntityTariffs(Collections.singletonList("ITEM1"), Collections.emptyList()));
+        verifyNoInteractions(connectionPool);
+    }
+
+    @Test
+    void upperCasesCountryCodesBeforeQuerying() throws Exception {
+        when(resultSet.next()).thenReturn(false);
+
+        repository.getEntityTariffs(Collections.singletonList("ITEM1"), Arrays.asList("usa", "Chn"));
+
+        ArgumentCaptor<Object[]> countries = ArgumentCaptor.forClass(Object[].class);
+        verify(connection).createArrayOf(eq("varchar"), eq(new Object[] {"ITEM1"}));
+        verify(connection, times(2)).createArrayOf(eq("varchar"), countries.capture());
+        assertArrayEquals(new Object[] {"USA", "CHN"}, countries.getAllValues().get(1));
+    }
+
+    @Test
+    void rejectsMalformedCountryCodes() {
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.getEntityTariffs(Collections.singletonList("ITEM1"), Collections.singletonList("US")));
+    }
+
+    @Test
+    void groupsRowsByEntityAndCountryAndOmitsMisses() throws Exception {
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString("tariff_id")).thenReturn("t1", "t2");
+        when(resultSet.getDouble("tariff_rate")).thenReturn(2.5, 4.0);
+        when(resultSet.getString("entity_id")).thenReturn("ITEM1", "C1");
+        when(resultSet.getString("country_code")).thenReturn("USA", "USA");
+        when(resultSet.getObject("start_date", LocalDate.class)).thenReturn(LocalDate.of(2024, 1, 1));
+
+        Map<String, Map<String, TariffRate>> tariffs =
+                repository.getEntityTariffs(Arrays.asList("ITEM1", "C1", "C2"), Arrays.asList("usa", "CHN"));
+
+        assertEquals(2, tariffs.size());
+        assertEquals(2.5, tariffs.get("ITEM1").get("USA").getTariffRate());
+        assertEquals(4.0, tariffs.get("C1").get("USA").getTariffRate());
+        assertFalse(tariffs.get("ITEM1").containsKey("CHN"));
+        assertFalse(tariffs.containsKey("C2"));
+    }
+
+    @Test
+    void readsFromPrimaryWhenAsked() throws Exception {
+        when(connectionPool.getConnection()).thenReturn(connection);
+        when(resultSet.next()).thenReturn(false);
+
+        assertTrue(new TariffRepository(connectionPool, true)
+                .getEntityTariffs(Collections.singletonList("ITEM1"), Collections.singletonList("USA")).isEmpty());
+        verify(connectionPool).getConnection();
+    }
+}
@@ -0,0 +1,160 @@
+package com.tariff.scheduler;
+
+import com.tariff.enums.RequestPriority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestSchedulerTest {
+    // One worker per lane, so queued stages run strictly in queue order
+    private final RequestScheduler scheduler = new RequestScheduler(1, 1);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void runsEarliestDeadlineFirst() throws Exception {
+        CountDownLatch release = blockLane(RequestPriority.INTERACTIVE);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<?> late = scheduler.submit(RequestContext.interactive(Duration.ofSeconds(30)), "late",
+                () -> order.add("late"));
+        CompletableFuture<?> early = scheduler.submit(RequestContext.interactive(Duration.ofSeconds(10)), "early",
+                () -> order.add("early"));
+        CompletableFuture<?> middle = scheduler.submit(RequestContext.interactive(Duration.ofSeconds(20)), "middle",
+                () -> order.add("middle"));
+        release.countDown();
+        CompletableFuture.allOf(late, early, middle).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("early", "middle", "late"), order);
+    }
+
+    @Test
+    void sameDeadlineRunsInSubmissionOrder() throws Exception {
+        CountDownLatch release = blockLane(RequestPriority.BULK);
+        RequestContext context = RequestContext.bulk(Duration.ofSeconds(30));
+        List<Integer> order = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[5];
+        for (int i = 0; i < futures.length; i++) {
+            int stage = i;
+            futures[i] = scheduler.submit(context, "stage", () -> order.add(stage));
+        }
+        release.countDown();
+        CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+    }
+
+    @Test
+    void dropsStagesWhoseDeadlinePassedInTheQueue() throws Exception {
+        CountDownLatch release = blockLane(RequestPriority.INTERACTIVE);
+        AtomicBoolean ran = new AtomicBoolean();
+
+        CompletableFuture<Boolean> future = scheduler.submit(RequestContext.interactive(Duration.ofMillis(20)),
+                "expiring", () -> ran.getAndSet(true));
+        Thread.sleep(50);
+        release.countDown();
+
+        assertThrows(DeadlineExceededException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+        assertEquals(1, scheduler.getExpiredCount());
+    }
+
+    @Test
+    void cancelStopsQueuedStages() throws Exception {
+        CountDownLatch release = blockLane(RequestPriority.BULK);
+        RequestContext context = RequestContext.bulk(Duration.ofSeconds(30));
+        AtomicBoolean ran = new AtomicBoolean();
+
+        CompletableFuture<Boolean> future = scheduler.submit(context, "queued", () -> ran.getAndSet(true));
+        context.cancel();
+        release.countDown();
+
+        assertThrows(CancellationException.class, () -> future.get(5, TimeUnit.SECONDS));
+        // A cancelled context also refuses stages submitted afterwards
+        CompletableFuture<Boolean> late = scheduler.submit(context, "late", () -> ran.getAndSet(true));
+        assertTrue(late.isCancelled());
+        scheduler.submit(RequestContext.bulk(Duration.ofSeconds(30)), "drain", () -> null).get(5, TimeUnit.SECONDS);
+        assertFalse(ran.get());
+    }
+
+    @Test
+    void awaitPastTheDeadlineCancelsSiblings() {
+        CountDownLatch release = blockLane(RequestPriority.INTERACTIVE);
+        RequestContext context = RequestContext.interactive(Duration.ofMillis(50));
+        CompletableFuture<Object> first = scheduler.submit(context, "first", () -> null);
+        CompletableFuture<Object> second = scheduler.submit(context, "second", () -> null);
+
+        assertThrows(DeadlineExceededException.class, () -> context.await(first, "first"));
+        assertTrue(second.isCancelled());
+        assertTrue(context.isExpired());
+        release.countDown();
+    }
+
+    @Test
+    void lanesDoNotBlockEachOther() throws Exception {
+        CountDownLatch release = blockLane(RequestPriority.BULK);
+
+        assertEquals("done", scheduler.submit(RequestContext.interactive(Duration.ofSeconds(5)), "interactive",
+                () -> "done").get(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    void errorThrownByAStageFailsItsFuture() {
+        CompletableFuture<Object> future = scheduler.submit(RequestContext.interactive(Duration.ofSeconds(5)),
+                "failing", () -> {
+                    throw new StackOverflowError();
+                });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof StackOverflowError);
+    }
+
+    @Test
+    void stageSubmittedAfterCloseFailsImmediately() {
+        scheduler.close();
+
+        CompletableFuture<Object> future = scheduler.submit(RequestContext.bulk(Duration.ofSeconds(5)), "late",
+                () -> null);
+
+        assertTrue(future.isCompletedExceptionally());
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+    // Occupies the lane's only worker until the returned latch is released
+    private CountDownLatch blockLane(RequestPriority priority) {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RequestContext context = new RequestContext(priority, Duration.ofMinutes(1));
+        scheduler.submit(context, "blocker", () -> {
+            started.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        try {
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        return release;
+    }
+}
@@ -0,0 +1,183 @@
+package com.tariff.schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tariff.config.DatabaseConfig;
+import com.tariff.repository.TariffRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Plan regression check for the TariffRepository hot queries: EXPLAINs each one under custom and
+// generic plans and fails if a hot table is read by anything other than an index or index-only scan.
+// Needs a PostgreSQL loaded by SyntheticDataGenerator at DB_HOST/DB_PORT and skips otherwise.
+class QueryPlanTest {
+    private static final Set<String> INDEX_SCANS = Set.of("Index Scan", "Index Only Scan");
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static Connection conn;
+    private static String itemId;
+    private static String country;
+    private static String entityId;
+    private static String policyVersionId;
+    private static List<String> bomEntities;
+
+    @BeforeAll
+    static void connect() throws SQLException {
+        DatabaseConfig config = new DatabaseConfig();
+        String url = String.format("jdbc:postgresql://%s:%d/%s?connectTimeout=5",
+                config.getDbHost(), config.getDbPort(), config.getDbName());
+        try {
+            conn = DriverManager.getConnection(url, config.getDbUser(), config.getDbPassword());
+        } catch (SQLException e) {
+            assumeTrue(false, "No PostgreSQL at " + url + ": " + e.getMessage());
+        }
+
+        itemId = sample("SELECT item_id FROM Item_Component LIMIT 1");
+        country = sample("SELECT country_code FROM TariffRule WHERE status = 'ACTIVE' LIMIT 1");
+        entityId = sample("SELECT entity_id FROM TariffRule WHERE status = 'ACTIVE' AND country_code = '"
+                + country + "' LIMIT 1");
+        policyVersionId = sample("SELECT policy_version_id::text FROM PolicyVersion LIMIT 1");
+        bomEntities = new ArrayList<>();
+        bomEntities.add(itemId);
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT component_id FROM Item_Component WHERE item_id = ?")) {
+            stmt.setString(1, itemId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    bomEntities.add(rs.getString(1));
+                }
+            }
+        }
+    }
+
+    @AfterAll
+    static void disconnect() throws SQLException {
+        if (conn != null) {
+            conn.close();
+        }
+    }
+
+    @AfterEach
+    void resetPlannerSettings() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("RESET plan_cache_mode");
+            stmt.execute("RESET enable_seqscan");
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"force_custom_plan", "force_generic_plan"})
+    void resolveBomUsesIndexes(String planCacheMode) throws Exception {
+        assertIndexScans(planCacheMode, TariffRepository.RESOLVE_BOM_QUERY, Set.of("item_component", "component"),
+                stmt -> stmt.setString(1, itemId));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"force_custom_plan", "force_generic_plan"})
+    void resolveBomsUsesIndexes(String planCacheMode) throws Exception {
+        assertIndexScans(planCacheMode, TariffRepository.RESOLVE_BOMS_QUERY, Set.of("item_component", "component"),
+                stmt -> stmt.setArray(1, conn.createArrayOf("varchar", new Object[]{itemId})));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"force_custom_plan", "force_generic_plan"})
+    void getEntityTariffUsesIndexes(String planCacheMode) throws Exception {
+        assertIndexScans(planCacheMode, TariffRepository.ENTITY_TARIFF_QUERY, Set.of("tariffrule"), stmt -> {
+            stmt.setString(1, entityId);
+            stmt.setString(2, country);
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"force_custom_plan", "force_generic_plan"})
+    void getEntityTariffsUsesIndexes(String planCacheMode) throws Exception {
+        assertIndexScans(planCacheMode, TariffRepository.ENTITY_TARIFFS_QUERY, Set.of("tariffrule"), stmt -> {
+            stmt.setArray(1, conn.createArrayOf("varchar", bomEntities.toArray()));
+            stmt.setArray(2, conn.createArrayOf("varchar", new Object[]{country}));
+        });
+    }
+
+    // PolicyVersion is tiny, so the planner rightly prefers a sequential scan there; with those
+    // disabled this checks that the predicate can still be answered through the primary key
+    @ParameterizedTest
+    @ValueSource(strings = {"force_custom_plan", "force_generic_plan"})
+    void getCombinationPolicyUsesThePrimaryKey(String planCacheMode) throws Exception {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET enable_seqscan = off");
+        }
+        assertIndexScans(planCacheMode, TariffRepository.COMBINATION_POLICY_QUERY, Set.of("policyversion"),
+                stmt -> stmt.setObject(1, UUID.fromString(policyVersionId)));
+    }
+
+    private static void assertIndexScans(String planCacheMode, String query, Set<String> hotTables,
+                                         ParameterBinder binder) throws Exception {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET plan_cache_mode = " + planCacheMode);
+        }
+
+        JsonNode plan;
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN (FORMAT JSON) " + query)) {
+            binder.bind(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                plan = OBJECT_MAPPER.readTree(rs.getString(1)).get(0).get("Plan");
+            }
+        }
+
+        List<String> scans = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        collectScans(plan, scans, failures, hotTables);
+        assertTrue(failures.isEmpty(), String.join("; ", failures) + " (plan: " + String.join(", ", scans) + ")");
+    }
+
+    private static void collectScans(JsonNode node, List<String> scans, List<String> failures, Set<String> hotTables) {
+        JsonNode relation = node.get("Relation Name");
+        if (relation != null) {
+            String table = relation.asText().toLowerCase();
+            String nodeType = node.get("Node Type").asText();
+            JsonNode index = node.get("Index Name");
+            scans.add(table + "=" + nodeType + (index != null ? "(" + index.asText() + ")" : ""));
+            if (hotTables.contains(table) && !INDEX_SCANS.contains(nodeType)) {
+                failures.add(table + " read by " + nodeType);
+            }
+        }
+        JsonNode children = node.get("Plans");
+        if (children != null) {
+            for (JsonNode child : children) {
+                collectScans(child, scans, failures, hotTables);
+            }
+        }
+    }
+
+    // Skips the suite when the database has not been loaded yet
+    private static String sample(String query) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+            assumeTrue(rs.next(), "No data for plan check, run SyntheticDataGenerator first: " + query);
+            return rs.getString(1);
+        } catch (SQLException e) {
+            assumeTrue(false, "Schema not loaded, run SyntheticDataGenerator first: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ParameterBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+}
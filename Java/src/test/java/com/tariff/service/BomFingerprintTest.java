@@ -0,0 +1,77 @@
+package com.tariff.service;
+
+import com.tariff.model.Component;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BomFingerprintTest {
+
+    @Test
+    void isA128BitHexString() {
+        String fingerprint = BomFingerprint.of(bom("C1", "C2"));
+
+        assertEquals(32, fingerprint.length());
+        assertTrue(fingerprint.matches("[0-9a-f]{32}"));
+    }
+
+    @Test
+    void permutationsShareAFingerprint() {
+        List<Component> components = bom("C1", "C2", "C3", "C4", "C5", "C6");
+        String expected = BomFingerprint.of(components);
+
+        Random random = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            List<Component> shuffled = new ArrayList<>(components);
+            Collections.shuffle(shuffled, random);
+            assertEquals(expected, BomFingerprint.of(shuffled));
+        }
+    }
+
+    @Test
+    void repeatedComponentsDoNotChangeTheFingerprint() {
+        // A BOM row carries no quantity, so a component listed twice is still the same component set
+        assertEquals(BomFingerprint.of(bom("C1", "C2")), BomFingerprint.of(bom("C2", "C1", "C1")));
+    }
+
+    @Test
+    void differentComponentSetsGetDifferentFingerprints() {
+        String base = BomFingerprint.of(bom("C1", "C2", "C3"));
+
+        assertNotEquals(base, BomFingerprint.of(bom("C1", "C2")));
+        assertNotEquals(base, BomFingerprint.of(bom("C1", "C2", "C3", "C4")));
+        assertNotEquals(base, BomFingerprint.of(bom("C1", "C2", "C4")));
+        assertNotEquals(base, BomFingerprint.of(Collections.emptyList()));
+    }
+
+    @Test
+    void componentBoundariesAreHashed() {
+        assertNotEquals(BomFingerprint.of(bom("AB", "C")), BomFingerprint.of(bom("A", "BC")));
+        assertNotEquals(BomFingerprint.of(bom("ABC")), BomFingerprint.of(bom("A", "BC")));
+    }
+
+    @Test
+    void ignoresDescriptiveFields() {
+        List<Component> renamed = Arrays.asList(
+                new Component("C1", "Renamed", "PLASTIC"),
+                new Component("C2", "Other", "WOOD"));
+
+        assertEquals(BomFingerprint.of(bom("C1", "C2")), BomFingerprint.of(renamed));
+    }
+
+    static List<Component> bom(String... componentIds) {
+        List<Component> components = new ArrayList<>();
+        for (String componentId : componentIds) {
+            components.add(new Component(componentId, "Component " + componentId, "METAL"));
+        }
+        return components;
+    }
+}
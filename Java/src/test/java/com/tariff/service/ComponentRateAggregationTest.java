@@ -0,0 +1,94 @@
+package com.tariff.service;
+
+import com.tariff.model.Component;
+import com.tariff.model.ComponentRateAggregate;
+import com.tariff.model.TariffRate;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.tariff.service.BomFingerprintTest.bom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ComponentRateAggregationTest {
+
+    @Test
+    void sumsTheRatesOfComponentsWithATariff() {
+        Map<String, TariffRate> tariffs = new HashMap<>();
+        tariffs.put("C1", tariff("C1", 2.5, "pv-1"));
+        tariffs.put("C3", tariff("C3", 1.25, "pv-3"));
+
+        ComponentRateAggregate aggregate = aggregate(bom("C1", "C2", "C3"), tariffs);
+
+        assertEquals(0, new BigDecimal("3.75").compareTo(aggregate.getComponentTariffRate()));
+        assertEquals(List.of("C1", "C3"), aggregate.getComponentsUsed());
+        assertEquals("pv-1", aggregate.getPolicyVersionId());
+        assertEquals("USA", aggregate.getCountryCode());
+    }
+
+    @Test
+    void permutedBomsProduceTheSameAggregate() {
+        Map<String, TariffRate> tariffs = new HashMap<>();
+        tariffs.put("C1", tariff("C1", 0.1, "pv-1"));
+        tariffs.put("C2", tariff("C2", 0.2, "pv-2"));
+        tariffs.put("C3", tariff("C3", 0.3, "pv-3"));
+        List<Component> sorted = bom("C1", "C2", "C3");
+        List<Component> permuted = bom("C3", "C1", "C2");
+
+        ComponentRateAggregate expected = aggregate(sorted, tariffs);
+        ComponentRateAggregate actual = aggregate(permuted, tariffs);
+
+        assertEquals(BomFingerprint.of(sorted), BomFingerprint.of(permuted));
+        assertEquals(expected.getComponentTariffRate(), actual.getComponentTariffRate());
+        assertEquals(expected.getComponentsUsed(), actual.getComponentsUsed());
+        assertEquals(expected.getPolicyVersionId(), actual.getPolicyVersionId());
+    }
+
+    @Test
+    void repeatedComponentsCountOnce() {
+        Map<String, TariffRate> tariffs = Collections.singletonMap("C1", tariff("C1", 4.0, "pv-1"));
+
+        ComponentRateAggregate aggregate = aggregate(bom("C1", "C1"), tariffs);
+
+        assertEquals(0, new BigDecimal("4.0").compareTo(aggregate.getComponentTariffRate()));
+        assertEquals(List.of("C1"), aggregate.getComponentsUsed());
+    }
+
+    @Test
+    void differentRatesGiveDifferentAggregates() {
+        List<Component> components = bom("C1", "C2");
+        Map<String, TariffRate> low = new HashMap<>();
+        low.put("C1", tariff("C1", 1.0, "pv-1"));
+        low.put("C2", tariff("C2", 1.0, "pv-1"));
+        Map<String, TariffRate> high = new HashMap<>(low);
+        high.put("C2", tariff("C2", 3.0, "pv-1"));
+
+        assertEquals(0, new BigDecimal("2.0").compareTo(aggregate(components, low).getComponentTariffRate()));
+        assertEquals(0, new BigDecimal("4.0").compareTo(aggregate(components, high).getComponentTariffRate()));
+    }
+
+    @Test
+    void noTariffsGiveAZeroRateAndNoPolicy() {
+        ComponentRateAggregate aggregate = aggregate(bom("C1", "C2"), Collections.emptyMap());
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(aggregate.getComponentTariffRate()));
+        assertEquals(new ArrayList<String>(), aggregate.getComponentsUsed());
+        assertNull(aggregate.getPolicyVersionId());
+    }
+
+    private static ComponentRateAggregate aggregate(List<Component> components, Map<String, TariffRate> tariffs) {
+        return TariffService.aggregateComponentRates(BomFingerprint.of(components), "USA", components, tariffs);
+    }
+
+    private static TariffRate tariff(String entityId, double rate, String policyVersionId) {
+        return new TariffRate("t-" + entityId, rate, "COMPONENT", entityId, "USA",
+                LocalDate.of(2024, 1, 1), null, "ACTIVE", policyVersionId);
+    }
+}
@@ -0,0 +1,127 @@
+package com.tariff.service;
+
+import com.tariff.config.DatabaseConfig;
+import com.tariff.connection.ConnectionPool;
+import com.tariff.model.TariffChange;
+import com.tariff.repository.TariffChangeRepository;
+import com.tariff.repository.TariffChangeRepository.AffectedItemsConsumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TariffChangeFeedTest {
+    private static final Map<String, Set<String>> FIRST_CHUNK = Map.of("ITEM1", Set.of("USA"));
+    private static final Map<String, Set<String>> SECOND_CHUNK = Map.of("ITEM2", Set.of("DEU"));
+
+    private TariffService service;
+    private TariffChangeRepository changeRepository;
+    private TariffChangeFeed feed;
+    private List<TariffChange> changes;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        service = mock(TariffService.class);
+        changeRepository = mock(TariffChangeRepository.class);
+        DatabaseConfig config = mock(DatabaseConfig.class);
+        when(config.getChangeFeedPollMs()).thenReturn(1L);
+        when(config.getChangeFeedBatchSize()).thenReturn(3);
+        when(config.getChangeFeedRefreshItems()).thenReturn(1);
+        feed = new TariffChangeFeed(service, mock(ConnectionPool.class), changeRepository, config);
+
+        changes = Arrays.asList(change(1), change(2));
+        when(changeRepository.fetchPending(3)).thenReturn(changes);
+        // Two chunks of one item each, handed over the way resolveAffectedItems streams them
+        when(changeRepository.resolveAffectedItems(eq(changes), eq(1), any())).thenAnswer(invocation -> {
+            AffectedItemsConsumer consumer = invocation.getArgument(2);
+            return consumer.accept(FIRST_CHUNK) && consumer.accept(SECOND_CHUNK);
+        });
+    }
+
+    @Test
+    void changesAreDeletedAfterEveryChunkWasWritten() throws SQLException {
+        when(service.refreshTariffs(any())).thenReturn(true);
+
+        assertFalse(feed.consumeBatch());
+
+        InOrder order = inOrder(service, changeRepository);
+        order.verify(service).refreshTariffs(FIRST_CHUNK);
+        order.verify(service).refreshTariffs(SECOND_CHUNK);
+        order.verify(changeRepository).deleteChanges(changes);
+        assertEquals(2, feed.getConsumedChanges());
+        assertEquals(2, feed.getRefreshedItems());
+    }
+
+    @Test
+    void failedWriteKeepsTheChangesForTheRetry() throws SQLException {
+        when(service.refreshTariffs(any())).thenReturn(true, false, true, true);
+
+        assertFalse(feed.consumeBatch());
+
+        verify(changeRepository, never()).deleteChanges(anyList());
+        assertEquals(0, feed.getConsumedChanges());
+
+        // The next drain fetches the same rows again and recomputes them from the start
+        feed.consumeBatch();
+
+        verify(service, times(2)).refreshTariffs(FIRST_CHUNK);
+        verify(changeRepository).deleteChanges(changes);
+        assertEquals(2, feed.getConsumedChanges());
+    }
+
+    @Test
+    void refreshErrorLeavesTheChangesInPlace() throws SQLException {
+        when(service.refreshTariffs(any())).thenThrow(new SQLException("primary unavailable"));
+
+        // The run loop logs it and reconnects
+        assertThrows(SQLException.class, () -> feed.consumeBatch());
+
+        verify(changeRepository, never()).deleteChanges(anyList());
+    }
+
+    @Test
+    void fullBatchReportsThatMoreMayBeWaiting() throws SQLException {
+        List<TariffChange> full = Arrays.asList(change(1), change(2), change(3));
+        when(changeRepository.fetchPending(3)).thenReturn(full);
+        when(changeRepository.resolveAffectedItems(eq(full), anyInt(), any())).thenReturn(true);
+
+        assertTrue(feed.consumeBatch());
+        verify(changeRepository).deleteChanges(full);
+    }
+
+    @Test
+    void emptyFeedResetsTheLag() throws SQLException {
+        when(changeRepository.fetchPending(3)).thenReturn(Collections.emptyList());
+
+        assertFalse(feed.consumeBatch());
+
+        assertEquals(0, feed.getLastLagMillis());
+        verify(service, never()).refreshTariffs(any());
+    }
+
+    private static TariffChange change(long id) {
+        return new TariffChange(id, "TariffRule", "C" + id, null, "USA", null, OffsetDateTime.now());
+    }
+}
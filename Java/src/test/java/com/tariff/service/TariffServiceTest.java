@@ -0,0 +1,100 @@
+package com.tariff.service;
+
+import com.tariff.cache.CacheManager;
+import com.tariff.config.DatabaseConfig;
+import com.tariff.connection.ConnectionPool;
+import com.tariff.enums.CacheNamespace;
+import com.tariff.model.CombinedTariff;
+import com.tariff.model.ComponentRateAggregate;
+import com.tariff.model.TariffRate;
+import com.tariff.repository.TariffRepository;
+import com.tariff.scheduler.RequestScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static com.tariff.service.BomFingerprintTest.bom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TariffServiceTest {
+    private TariffRepository repository;
+    private CacheManager cacheManager;
+    private RequestScheduler scheduler;
+    private TariffService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        repository = mock(TariffRepository.class);
+        cacheManager = mock(CacheManager.class);
+        when(cacheManager.generateCacheKey(any(CacheNamespace.class), any(Object[].class))).thenAnswer(invocation ->
+                Arrays.stream(invocation.getArguments()).map(String::valueOf).collect(Collectors.joining(":")));
+        // Mockito would answer these with empty collections, which read as cached values
+        when(cacheManager.getList(anyString(), any())).thenReturn(null);
+        when(cacheManager.getOptional(anyString(), any())).thenReturn(null);
+        scheduler = new RequestScheduler(2, 2);
+        service = new TariffService(new DatabaseConfig(), mock(ConnectionPool.class), repository, repository,
+                cacheManager, scheduler);
+
+        when(repository.resolveBom("ITEM1")).thenReturn(bom("C1", "C2"));
+        when(repository.getEntityTariff("ITEM1", "USA")).thenReturn(Optional.empty());
+        when(repository.getEntityTariff("C1", "USA")).thenReturn(Optional.of(tariff("C1", 2.5)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void failedComponentLookupIsNotCachedAsAbsent() throws SQLException {
+        when(repository.getEntityTariff("C2", "USA")).thenThrow(new SQLException("connection reset"));
+
+        assertThrows(SQLException.class, () -> service.calculateTotalTariff("ITEM1", "USA"));
+
+        verify(cacheManager, never()).set(anyString(), any(ComponentRateAggregate.class), anyInt(), anyLong());
+        verify(cacheManager, never()).set(anyString(), any(CombinedTariff.class), anyInt(), anyLong());
+    }
+
+    @Test
+    void componentWithoutATariffIsLeftOutOfTheCachedAggregate() throws SQLException {
+        when(repository.getEntityTariff("C2", "USA")).thenReturn(Optional.empty());
+
+        CombinedTariff result = service.calculateTotalTariff("ITEM1", "USA");
+
+        assertEquals(Arrays.asList("C1"), result.getComponentsUsed());
+        verify(cacheManager).set(anyString(), any(ComponentRateAggregate.class), anyInt(), anyLong());
+        verify(cacheManager).set(anyString(), any(CombinedTariff.class), anyInt(), anyLong());
+    }
+
+    @Test
+    void batchWithoutAContextFallsBackToAbsentForFailedLookups() throws SQLException {
+        when(repository.getEntityTariff("C2", "USA")).thenThrow(new SQLException("connection reset"));
+
+        Map<String, Optional<TariffRate>> results = service.batchGetEntityTariff(
+                Arrays.asList(Map.entry("C1", "USA"), Map.entry("C2", "USA")));
+
+        assertEquals(2.5, results.get("C1_USA").get().getTariffRate());
+        assertEquals(Optional.empty(), results.get("C2_USA"));
+    }
+
+    private static TariffRate tariff(String entityId, double rate) {
+        return new TariffRate("t-" + entityId, rate, "COMPONENT", entityId, "USA",
+                LocalDate.of(2024, 1, 1), null, "ACTIVE", null);
+    }
+}
@@ -0,0 +1,103 @@
+package com.tariff.tracing;
+
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordingSummaryTest {
+
+    @Test
+    void summaryBreaksStagesDownByDiscriminator(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("stages.jfr");
+        try (Recording recording = new Recording()) {
+            // Thresholds off so that the synthetic, near-instant events are all kept
+            recording.enable(DbQueryEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(CacheProbeEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(TariffCalculationEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+
+            for (int i = 0; i < 3; i++) {
+                DbQueryEvent query = new DbQueryEvent();
+                query.begin();
+                query.query = "resolveBom";
+                query.commit();
+            }
+            DbQueryEvent slowQuery = new DbQueryEvent();
+            slowQuery.begin();
+            Thread.sleep(20);
+            slowQuery.query = "getEntityTariff";
+            slowQuery.commit();
+
+            for (String namespace : new String[] {"bom", "bom", "tariff"}) {
+                CacheProbeEvent probe = new CacheProbeEvent();
+                probe.begin();
+                probe.namespace = namespace;
+                probe.commit();
+            }
+
+            TariffCalculationEvent hit = new TariffCalculationEvent();
+            hit.begin();
+            hit.cacheHit = true;
+            hit.commit();
+            for (int i = 0; i < 2; i++) {
+                TariffCalculationEvent miss = new TariffCalculationEvent();
+                miss.begin();
+                miss.commit();
+            }
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        String summary = RecordingSummary.summarize(file);
+
+        assertEquals(3, count(summary, "DbQuery [resolveBom]"));
+        assertEquals(1, count(summary, "DbQuery [getEntityTariff]"));
+        assertTrue(maxMillis(summary, "DbQuery [getEntityTariff]") >= 20.0);
+        assertEquals(2, count(summary, "CacheProbe [bom]"));
+        assertEquals(1, count(summary, "CacheProbe [tariff]"));
+        assertEquals(1, count(summary, "TariffCalculation [hit]"));
+        assertEquals(2, count(summary, "TariffCalculation [miss]"));
+        assertFalse(summary.contains("CacheWrite"));
+    }
+
+    @Test
+    void emptyRecordingHasOnlyTheHeader(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("empty.jfr");
+        try (Recording recording = new Recording()) {
+            recording.start();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        String summary = RecordingSummary.summarize(file);
+
+        assertEquals(1, summary.lines().count());
+        assertTrue(summary.startsWith("stage"));
+    }
+
+    private static long count(String summary, String stage) {
+        return Long.parseLong(columns(summary, stage)[0]);
+    }
+
+    private static double maxMillis(String summary, String stage) {
+        return Double.parseDouble(columns(summary, stage)[5]);
+    }
+
+    // count, mean, p50, p90, p99, max, total
+    private static String[] columns(String summary, String stage) {
+        Matcher line = Pattern.compile("^" + Pattern.quote(stage) + "\\s+(.*)$", Pattern.MULTILINE).matcher(summary);
+        assertTrue(line.find(), "no line for " + stage + " in\n" + summary);
+        return line.group(1).trim().split("\\s+");
+    }
+}